@@ -0,0 +1,152 @@
+package cmsc420_s22;
+
+import java.util.ArrayList;
+
+/**
+ * An array-based binary min-heap. Each entry records its index in the array,
+ * so that decreaseKey can sift it up in O(log n) time. This is the baseline
+ * against which QuakeHeap and PairingHeap are compared.
+ */
+
+public class BinaryHeap<Key extends Comparable<Key>, Value> implements MinHeap<Key, Value> {
+
+	// -----------------------------------------------------------------
+	// Locator - an entry of the heap
+	// -----------------------------------------------------------------
+
+	public class Locator implements MinHeap.Locator {
+		private Key key; // key (for sorting)
+		private final Value value; // value (application dependent)
+		private int index; // index in the heap array (-1 once extracted)
+
+		private Locator(Key key, Value value) {
+			this.key = key;
+			this.value = value;
+		}
+	}
+
+	// -----------------------------------------------------------------
+	// Private members
+	// -----------------------------------------------------------------
+
+	private ArrayList<Locator> heap; // the entries, in heap order
+
+	// -----------------------------------------------------------------
+	// Local utilities
+	// -----------------------------------------------------------------
+
+	void place(Locator e, int i) { // store e at index i
+		heap.set(i, e);
+		e.index = i;
+	}
+
+	/**
+	 * Move the entry at index i up until its parent's key is not larger.
+	 */
+	void siftUp(int i) {
+		Locator e = heap.get(i);
+		while (i > 0) {
+			int parent = (i - 1) / 2;
+			Locator p = heap.get(parent);
+			if (p.key.compareTo(e.key) <= 0)
+				break;
+			place(p, i);
+			i = parent;
+		}
+		place(e, i);
+	}
+
+	/**
+	 * Move the entry at index i down until no child has a smaller key.
+	 */
+	void siftDown(int i) {
+		Locator e = heap.get(i);
+		int n = heap.size();
+		while (2 * i + 1 < n) {
+			int child = 2 * i + 1;
+			if (child + 1 < n && heap.get(child + 1).key.compareTo(heap.get(child).key) < 0)
+				child += 1; // the smaller child
+			Locator c = heap.get(child);
+			if (e.key.compareTo(c.key) <= 0)
+				break;
+			place(c, i);
+			i = child;
+		}
+		place(e, i);
+	}
+
+	// -----------------------------------------------------------------
+	// Public members
+	// -----------------------------------------------------------------
+
+	/**
+	 * Creates an empty heap.
+	 */
+	public BinaryHeap() {
+		heap = new ArrayList<Locator>();
+	}
+
+	/**
+	 * Insert key-value pair.
+	 */
+	public Locator insert(Key x, Value v) {
+		Locator e = new Locator(x, v);
+		heap.add(e);
+		siftUp(heap.size() - 1);
+		return e;
+	}
+
+	/**
+	 * Get the minimum key from the heap.
+	 */
+	public Key getMinKey() throws Exception {
+		if (heap.isEmpty()) {
+			throw new Exception("Empty heap");
+		}
+		return heap.get(0).key;
+	}
+
+	/**
+	 * Remove an entry of minimum key and return its value.
+	 */
+	public Value extractMin() throws Exception {
+		if (heap.isEmpty()) {
+			throw new Exception("Empty heap");
+		}
+		Locator min = heap.get(0);
+		Locator last = heap.remove(heap.size() - 1);
+		if (last != min) { // move the last entry to the root
+			place(last, 0);
+			siftDown(0);
+		}
+		min.index = -1;
+		return min.value;
+	}
+
+	/**
+	 * Lower the key of the entry referenced by r. The new key must not be
+	 * larger than the old one.
+	 */
+	public void decreaseKey(MinHeap.Locator r, Key newKey) throws Exception {
+		@SuppressWarnings("unchecked")
+		Locator e = (Locator) r;
+		if (e.index < 0 || e.index >= heap.size() || heap.get(e.index) != e) {
+			throw new Exception("Attempt to decrease the key of a nonexistent entry");
+		} else if (newKey.compareTo(e.key) > 0) {
+			throw new Exception("Attempt to increase a key with decreaseKey");
+		}
+		e.key = newKey;
+		siftUp(e.index);
+	}
+
+	public int size() {
+		return heap.size();
+	}
+
+	/**
+	 * Clear the entire structure.
+	 */
+	public void clear() {
+		heap.clear();
+	}
+}
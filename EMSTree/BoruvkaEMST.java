@@ -0,0 +1,167 @@
+package cmsc420_s22;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Boruvka-style EMST construction. Each round finds, for every component, the
+ * shortest edge leaving it and merges along all of these edges at once. The
+ * nearest point outside a component is found with a kd-tree whose nodes are
+ * labeled by component, so subtrees lying entirely inside the query's own
+ * component are skipped as a whole. There are O(log n) rounds.
+ *
+ * The queries of a round are independent, so they may be spread over a
+ * fork-join pool. The points are processed in kd-tree preorder, so each task
+ * gets a range of points forming whole subtrees, whose queries tend to share
+ * components and hence pruning bounds.
+ */
+
+public class BoruvkaEMST<LPoint extends LabeledPoint2D> {
+
+	// =================================================================
+	// Search task - finds the shortest outgoing edges for a range of points
+	// =================================================================
+
+	private class SearchTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int lo, hi; // range of point indices [lo, hi)
+
+		SearchTask(int lo, int hi) {
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		protected void compute() {
+			if (hi - lo <= grainSize) {
+				search(lo, hi);
+			} else {
+				int mid = (lo + hi) >>> 1;
+				invokeAll(new SearchTask(lo, mid), new SearchTask(mid, hi));
+			}
+		}
+	}
+
+	// -----------------------------------------------------------------
+	// Private data
+	// -----------------------------------------------------------------
+
+	private Rectangle2D bbox; // the bounding box
+	private int parallelism; // number of worker threads (1 = sequential)
+	private int grainSize; // max number of points searched by one task
+	private ArrayList<LPoint> points; // the points, in kd-tree preorder
+	private HashMap<LPoint, Integer> index; // point -> index
+	private MinimalKdTree<LPoint> kdTree; // kd-tree over all the points
+	private int[] comp; // component of each point this round
+	private int[] nnTo; // per point: nearest point in another component (or -1)
+	private double[] nnDist; // per point: squared distance to nnTo
+
+	/**
+	 * Search for the shortest outgoing edges of points lo..hi-1. Queries of the
+	 * same component share the best distance found so far as pruning bound. A
+	 * point whose search is pruned gets nnTo = -1; its component's shortest edge
+	 * is then found by another point.
+	 */
+	void search(int lo, int hi) {
+		HashMap<Integer, Double> bound = new HashMap<Integer, Double>();
+		for (int i = lo; i < hi; i++) {
+			int c = comp[i];
+			LPoint q = points.get(i);
+			LPoint nn = kdTree.nearestOutside(q, c, bound.getOrDefault(c, Double.POSITIVE_INFINITY));
+			if (nn != null) {
+				nnTo[i] = index.get(nn);
+				nnDist[i] = q.getPoint2D().distanceSq(nn.getPoint2D());
+				bound.put(c, nnDist[i]);
+			} else {
+				nnTo[i] = -1;
+			}
+		}
+	}
+
+	// -----------------------------------------------------------------
+	// Public members
+	// -----------------------------------------------------------------
+
+	/**
+	 * Creates a sequential engine for points lying within bbox.
+	 */
+	public BoruvkaEMST(Rectangle2D bbox) {
+		this.bbox = new Rectangle2D(bbox);
+		this.parallelism = 1;
+	}
+
+	/**
+	 * Creates an engine that runs the searches of each round on the given
+	 * number of threads.
+	 */
+	public BoruvkaEMST(Rectangle2D bbox, int parallelism) throws Exception {
+		if (parallelism < 1) {
+			throw new Exception("Parallelism must be at least 1");
+		}
+		this.bbox = new Rectangle2D(bbox);
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Compute the EMST edges of the given points (in no particular order). The
+	 * points must be distinct.
+	 */
+	public ArrayList<Pair<LPoint>> build(List<LPoint> pts) throws Exception {
+		ArrayList<Pair<LPoint>> edges = new ArrayList<Pair<LPoint>>();
+		kdTree = new MinimalKdTree<LPoint>(bbox);
+		kdTree.bulkLoad(pts);
+		points = kdTree.listPoints();
+		index = new HashMap<LPoint, Integer>();
+		int n = points.size();
+		for (int i = 0; i < n; i++)
+			index.put(points.get(i), i);
+		UnionFind comps = new UnionFind(n);
+
+		comp = new int[n];
+		nnTo = new int[n];
+		nnDist = new double[n];
+		double[] bestDist = new double[n]; // per component: shortest outgoing edge
+		int[] bestFrom = new int[n];
+		int[] bestTo = new int[n];
+		grainSize = Math.max(64, n / (8 * parallelism));
+		ForkJoinPool pool = (parallelism > 1 ? new ForkJoinPool(parallelism) : null);
+		try {
+			while (comps.size() > 1) {
+				for (int i = 0; i < n; i++)
+					comp[i] = comps.find(i);
+				kdTree.labelComponents(pt -> comp[index.get(pt)]);
+				if (pool != null) {
+					pool.invoke(new SearchTask(0, n));
+				} else {
+					search(0, n);
+				}
+				Arrays.fill(bestDist, Double.POSITIVE_INFINITY);
+				Arrays.fill(bestTo, -1);
+				for (int i = 0; i < n; i++) { // combine the per-point results
+					int c = comp[i];
+					if (nnTo[i] >= 0 && nnDist[i] < bestDist[c]) {
+						bestDist[c] = nnDist[i];
+						bestFrom[c] = i;
+						bestTo[c] = nnTo[i];
+					}
+				}
+				boolean merged = false;
+				for (int c = 0; c < n; c++) {
+					if (bestTo[c] >= 0 && comps.union(bestFrom[c], bestTo[c])) {
+						edges.add(new Pair<LPoint>(points.get(bestFrom[c]), points.get(bestTo[c])));
+						merged = true;
+					}
+				}
+				if (!merged) // no edge left to add (cannot happen for a finite point set)
+					break;
+			}
+		} finally {
+			if (pool != null)
+				pool.shutdown();
+		}
+		return edges;
+	}
+}
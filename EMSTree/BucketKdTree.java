@@ -0,0 +1,300 @@
+package cmsc420_s22;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * A kd-tree whose leaves are buckets of up to leafSize points. The points are
+ * stored in primitive arrays (px, py) in leaf order, so every bucket is a
+ * contiguous range. A nearest-neighbor search descends only to depth about
+ * log(n / leafSize) and then scans whole buckets. The scan is a
+ * branch-free min-reduction over the two coordinate arrays, a loop shape
+ * that C2 can compile to SIMD instructions.
+ *
+ * Internal nodes cut along the dimension of greater spread at the median.
+ * The tree is built in bulk; points can then be deleted (the last point of
+ * the bucket fills the hole) but not inserted.
+ */
+
+public class BucketKdTree<LPoint extends LabeledPoint2D> {
+
+	// -----------------------------------------------------------------
+	// Private data
+	// -----------------------------------------------------------------
+
+	private int leafSize; // max points per bucket
+	private double[] px, py; // point coordinates, in bucket order
+	private int[] label; // index into points of each slot
+	private ArrayList<LPoint> points; // the points
+	private int[] cutDim; // per node: cutting dimension, or -1 for a leaf
+	private double[] cutVal; // per node: cutting value (smaller goes left)
+	private int[] left, right; // per internal node: children
+	private int[] start, count; // per leaf: first slot and number of points
+	private int nNodes; // number of nodes
+	private int nPoints; // number of points
+	private Rectangle2D bbox; // the bounding box
+
+	// -----------------------------------------------------------------
+	// Local utilities
+	// -----------------------------------------------------------------
+
+	int newNode() {
+		if (nNodes == cutDim.length) {
+			int capacity = Math.max(16, 2 * nNodes);
+			cutDim = Arrays.copyOf(cutDim, capacity);
+			cutVal = Arrays.copyOf(cutVal, capacity);
+			left = Arrays.copyOf(left, capacity);
+			right = Arrays.copyOf(right, capacity);
+			start = Arrays.copyOf(start, capacity);
+			count = Arrays.copyOf(count, capacity);
+		}
+		return nNodes++;
+	}
+
+	void swap(int i, int j) {
+		double t = px[i];
+		px[i] = px[j];
+		px[j] = t;
+		t = py[i];
+		py[i] = py[j];
+		py[j] = t;
+		int l = label[i];
+		label[i] = label[j];
+		label[j] = l;
+	}
+
+	double coord(int slot, int cd) {
+		return (cd == 0 ? px[slot] : py[slot]);
+	}
+
+	/**
+	 * Build the subtree for slots lo..hi-1 and return its root.
+	 */
+	int build(int lo, int hi) {
+		int u = newNode();
+		if (hi - lo <= leafSize) {
+			cutDim[u] = -1;
+			start[u] = lo;
+			count[u] = hi - lo;
+			return u;
+		}
+		double minX = px[lo], maxX = px[lo], minY = py[lo], maxY = py[lo];
+		for (int i = lo + 1; i < hi; i++) {
+			minX = Math.min(minX, px[i]);
+			maxX = Math.max(maxX, px[i]);
+			minY = Math.min(minY, py[i]);
+			maxY = Math.max(maxY, py[i]);
+		}
+		int cd = (maxX - minX >= maxY - minY ? 0 : 1);
+		int k = split(lo, hi, cd);
+		double cut = coord(k, cd);
+		for (int i = k + 1; i < hi; i++) // smallest coordinate on the right
+			cut = Math.min(cut, coord(i, cd));
+		cutDim[u] = cd;
+		cutVal[u] = cut;
+		int l = build(lo, k);
+		int r = build(k, hi);
+		left[u] = l;
+		right[u] = r;
+		return u;
+	}
+
+	/**
+	 * Rearrange slots lo..hi-1 (whose coordinates along cd are not all equal)
+	 * and return k with lo < k < hi such that the slots before k have strictly
+	 * smaller coordinates along cd than those from k on. k is as close to the
+	 * median as the equal coordinates allow.
+	 */
+	int split(int lo, int hi, int cd) {
+		int a = lo, b = hi, k = (lo + hi) / 2;
+		while (true) { // three-way quickselect for the k-th coordinate
+			double v = coord((a + b) >>> 1, cd);
+			int lt = a, i = a, gt = b; // [a,lt) < v, [lt,i) == v, [gt,b) > v
+			while (i < gt) {
+				double c = coord(i, cd);
+				if (c < v) {
+					swap(lt++, i++);
+				} else if (c > v) {
+					swap(i, --gt);
+				} else {
+					i++;
+				}
+			}
+			if (k < lt) {
+				b = lt;
+			} else if (k >= gt) {
+				a = gt;
+			} else if (lt > lo) {
+				return lt; // first slot holding the median
+			} else {
+				return gt; // the median is the minimum: split after its run
+			}
+		}
+	}
+
+	/**
+	 * Nearest slot to (qx, qy) in the subtree of u, with q's cell offsets and
+	 * the caller's best as in MinimalKdTree.nearestNode.
+	 */
+	int nearestSlot(double qx, double qy, int u, double off0, double off1, int best, double bestDist) {
+		if (cutDim[u] < 0) { // leaf: scan the bucket
+			int lo = start[u], hi = lo + count[u];
+			double m = bestDist;
+			for (int i = lo; i < hi; i++) { // branch-free, vectorizable
+				double dx = qx - px[i];
+				double dy = qy - py[i];
+				m = Math.min(m, dx * dx + dy * dy);
+			}
+			if (m < bestDist) { // locate the closest point
+				for (int i = lo; i < hi; i++) {
+					double dx = qx - px[i];
+					double dy = qy - py[i];
+					if (dx * dx + dy * dy == m)
+						return i;
+				}
+			}
+			return best;
+		}
+		int cd = cutDim[u];
+		double diff = (cd == 0 ? qx : qy) - cutVal[u];
+		int b = nearestSlot(qx, qy, (diff < 0 ? left[u] : right[u]), off0, off1, best, bestDist);
+		if (b != best) {
+			best = b;
+			bestDist = (qx - px[b]) * (qx - px[b]) + (qy - py[b]) * (qy - py[b]);
+		}
+		if (cd == 0) {
+			off0 = diff;
+		} else {
+			off1 = diff;
+		}
+		if (off0 * off0 + off1 * off1 < bestDist) { // is far side viable?
+			best = nearestSlot(qx, qy, (diff < 0 ? right[u] : left[u]), off0, off1, best, bestDist);
+		}
+		return best;
+	}
+
+	/**
+	 * The leaf whose cell contains (x, y).
+	 */
+	int findLeaf(double x, double y) {
+		int u = 0;
+		while (cutDim[u] >= 0) {
+			u = ((cutDim[u] == 0 ? x : y) < cutVal[u] ? left[u] : right[u]);
+		}
+		return u;
+	}
+
+	/**
+	 * Slot holding (x, y) in leaf u, or -1.
+	 */
+	int findSlot(int u, double x, double y) {
+		for (int i = start[u]; i < start[u] + count[u]; i++) {
+			if (px[i] == x && py[i] == y)
+				return i;
+		}
+		return -1;
+	}
+
+	// -----------------------------------------------------------------
+	// Public members
+	// -----------------------------------------------------------------
+
+	/**
+	 * Creates an empty tree with buckets of up to leafSize points.
+	 */
+	public BucketKdTree(int leafSize, Rectangle2D bbox) throws Exception {
+		if (leafSize < 1) {
+			throw new Exception("Leaf size must be at least 1");
+		}
+		this.leafSize = leafSize;
+		this.bbox = new Rectangle2D(bbox);
+		clear();
+	}
+
+	/**
+	 * Number of points in the tree.
+	 */
+	public int size() {
+		return nPoints;
+	}
+
+	/**
+	 * Replace the contents of the tree by the given points.
+	 */
+	public void bulkLoad(List<LPoint> pts) throws Exception {
+		int n = pts.size();
+		HashSet<Point2D> seen = new HashSet<Point2D>();
+		for (LPoint pt : pts) {
+			if (!bbox.contains(pt.getPoint2D())) {
+				throw new Exception("Attempt to insert a point outside bounding box");
+			} else if (!seen.add(pt.getPoint2D())) {
+				throw new Exception("Attempt to insert a duplicate point");
+			}
+		}
+		clear();
+		points = new ArrayList<LPoint>(pts);
+		px = new double[n];
+		py = new double[n];
+		label = new int[n];
+		for (int i = 0; i < n; i++) {
+			px[i] = pts.get(i).getX();
+			py[i] = pts.get(i).getY();
+			label[i] = i;
+		}
+		nNodes = 0; // drop the empty leaf made by clear
+		build(0, n);
+		nPoints = n;
+	}
+
+	/**
+	 * Find a point in the tree.
+	 */
+	public LPoint find(Point2D pt) {
+		int slot = findSlot(findLeaf(pt.getX(), pt.getY()), pt.getX(), pt.getY());
+		return (slot < 0 ? null : points.get(label[slot]));
+	}
+
+	/**
+	 * Delete a point. The last point of its bucket takes its slot.
+	 */
+	public void delete(Point2D pt) throws Exception {
+		int u = findLeaf(pt.getX(), pt.getY());
+		int slot = findSlot(u, pt.getX(), pt.getY());
+		if (slot < 0) {
+			throw new Exception("Attempt to delete a nonexistent point");
+		}
+		count[u] -= 1;
+		swap(slot, start[u] + count[u]);
+		nPoints -= 1;
+	}
+
+	/**
+	 * Find the point closest to q (null if the tree is empty).
+	 */
+	public LPoint nearestNeighbor(Point2D q) {
+		if (nPoints == 0) {
+			return null;
+		}
+		double qx = q.getX(), qy = q.getY();
+		double off0 = MinimalKdTree.offset(qx, bbox.getLow().getX(), bbox.getHigh().getX());
+		double off1 = MinimalKdTree.offset(qy, bbox.getLow().getY(), bbox.getHigh().getY());
+		int slot = nearestSlot(qx, qy, 0, off0, off1, -1, Double.POSITIVE_INFINITY);
+		return points.get(label[slot]);
+	}
+
+	/**
+	 * Remove all items, resulting in an empty tree.
+	 */
+	public void clear() {
+		px = py = new double[0];
+		label = new int[0];
+		points = new ArrayList<LPoint>();
+		cutDim = left = right = start = count = new int[0];
+		cutVal = new double[0];
+		nNodes = 0;
+		nPoints = 0;
+		build(0, 0); // a single empty leaf
+	}
+}
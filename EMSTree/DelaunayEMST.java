@@ -0,0 +1,339 @@
+package cmsc420_s22;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * EMST construction through the Delaunay triangulation. Every EMST edge is a
+ * Delaunay edge, so it suffices to triangulate the points (Guibas-Stolfi
+ * divide and conquer, O(n log n)) and run Kruskal's algorithm over the O(n)
+ * resulting edges.
+ */
+
+public class DelaunayEMST<LPoint extends LabeledPoint2D> {
+
+	// =================================================================
+	// QuadEdge - one directed edge of the quad-edge structure
+	// =================================================================
+
+	private static class QuadEdge {
+		int org; // index of the origin point (-1 for dual edges)
+		QuadEdge rot; // dual edge, rotated 90 degrees counterclockwise
+		QuadEdge onext; // next edge counterclockwise around the origin
+		boolean deleted; // removed from the triangulation?
+
+		QuadEdge sym() { // same edge, opposite direction
+			return rot.rot;
+		}
+
+		QuadEdge oprev() { // next edge clockwise around the origin
+			return rot.onext.rot;
+		}
+
+		QuadEdge lnext() { // next edge counterclockwise around the left face
+			return rot.sym().onext.rot;
+		}
+
+		int dest() {
+			return sym().org;
+		}
+	}
+
+	// -----------------------------------------------------------------
+	// Private data
+	// -----------------------------------------------------------------
+
+	private Rectangle2D bbox; // the bounding box
+	private Point2D[] pts; // the points, sorted by (x, y)
+	private ArrayList<QuadEdge> edges; // primal edges created so far
+
+	// -----------------------------------------------------------------
+	// Quad-edge primitives
+	// -----------------------------------------------------------------
+
+	/**
+	 * Create a new edge from point a to point b.
+	 */
+	QuadEdge makeEdge(int a, int b) {
+		QuadEdge e0 = new QuadEdge(), e1 = new QuadEdge();
+		QuadEdge e2 = new QuadEdge(), e3 = new QuadEdge();
+		e0.org = a;
+		e2.org = b;
+		e1.org = e3.org = -1;
+		e0.rot = e1;
+		e1.rot = e2;
+		e2.rot = e3;
+		e3.rot = e0;
+		e0.onext = e0;
+		e2.onext = e2;
+		e1.onext = e3;
+		e3.onext = e1;
+		edges.add(e0);
+		return e0;
+	}
+
+	/**
+	 * Join or separate the origin rings of a and b (Guibas-Stolfi splice).
+	 */
+	void splice(QuadEdge a, QuadEdge b) {
+		QuadEdge alpha = a.onext.rot;
+		QuadEdge beta = b.onext.rot;
+		QuadEdge t = alpha.onext;
+		alpha.onext = beta.onext;
+		beta.onext = t;
+		t = a.onext;
+		a.onext = b.onext;
+		b.onext = t;
+	}
+
+	/**
+	 * Add an edge from the destination of a to the origin of b.
+	 */
+	QuadEdge connect(QuadEdge a, QuadEdge b) {
+		QuadEdge e = makeEdge(a.dest(), b.org);
+		splice(e, a.lnext());
+		splice(e.sym(), b);
+		return e;
+	}
+
+	/**
+	 * Remove an edge from the structure.
+	 */
+	void deleteEdge(QuadEdge e) {
+		splice(e, e.oprev());
+		splice(e.sym(), e.sym().oprev());
+		e.deleted = e.sym().deleted = true;
+	}
+
+	// -----------------------------------------------------------------
+	// Geometric predicates
+	// -----------------------------------------------------------------
+
+	// The predicates are adaptive: the determinant is first evaluated in
+	// floating point, and only if it is too close to zero for its sign to be
+	// trusted (Shewchuk's error bounds) is it recomputed exactly with
+	// BigDecimal. Plain floating point breaks the triangulation on
+	// near-collinear and near-cocircular points.
+
+	private static final double EPSILON = Math.ulp(1.0) / 2;
+	private static final double CCW_ERR_BOUND = (3 + 16 * EPSILON) * EPSILON;
+	private static final double ICC_ERR_BOUND = (10 + 96 * EPSILON) * EPSILON;
+
+	/**
+	 * The sign of twice the signed area of triangle abc (positive if
+	 * counterclockwise, zero if collinear).
+	 */
+	int cross(int a, int b, int c) {
+		double ax = pts[a].getX(), ay = pts[a].getY();
+		double left = (pts[b].getX() - ax) * (pts[c].getY() - ay);
+		double right = (pts[b].getY() - ay) * (pts[c].getX() - ax);
+		double det = left - right;
+		if (Math.abs(det) > CCW_ERR_BOUND * (Math.abs(left) + Math.abs(right)))
+			return (det > 0 ? 1 : -1);
+		BigDecimal bax = exact(pts[b].getX()).subtract(exact(ax));
+		BigDecimal bay = exact(pts[b].getY()).subtract(exact(ay));
+		BigDecimal cax = exact(pts[c].getX()).subtract(exact(ax));
+		BigDecimal cay = exact(pts[c].getY()).subtract(exact(ay));
+		return bax.multiply(cay).subtract(bay.multiply(cax)).signum();
+	}
+
+	private static BigDecimal exact(double x) {
+		return new BigDecimal(x);
+	}
+
+	boolean leftOf(int p, QuadEdge e) {
+		return cross(p, e.org, e.dest()) > 0;
+	}
+
+	boolean rightOf(int p, QuadEdge e) {
+		return cross(p, e.org, e.dest()) < 0;
+	}
+
+	/**
+	 * Is d strictly inside the circle through a, b, c (given counterclockwise)?
+	 */
+	boolean inCircle(int a, int b, int c, int d) {
+		double dx = pts[d].getX(), dy = pts[d].getY();
+		double adx = pts[a].getX() - dx, ady = pts[a].getY() - dy;
+		double bdx = pts[b].getX() - dx, bdy = pts[b].getY() - dy;
+		double cdx = pts[c].getX() - dx, cdy = pts[c].getY() - dy;
+		double alift = adx * adx + ady * ady;
+		double blift = bdx * bdx + bdy * bdy;
+		double clift = cdx * cdx + cdy * cdy;
+		double det = alift * (bdx * cdy - cdx * bdy) - blift * (adx * cdy - cdx * ady)
+				+ clift * (adx * bdy - bdx * ady);
+		double permanent = (Math.abs(bdx * cdy) + Math.abs(cdx * bdy)) * alift
+				+ (Math.abs(cdx * ady) + Math.abs(adx * cdy)) * blift
+				+ (Math.abs(adx * bdy) + Math.abs(bdx * ady)) * clift;
+		if (Math.abs(det) > ICC_ERR_BOUND * permanent)
+			return det > 0;
+		BigDecimal ex = exact(dx), ey = exact(dy);
+		BigDecimal eax = exact(pts[a].getX()).subtract(ex), eay = exact(pts[a].getY()).subtract(ey);
+		BigDecimal ebx = exact(pts[b].getX()).subtract(ex), eby = exact(pts[b].getY()).subtract(ey);
+		BigDecimal ecx = exact(pts[c].getX()).subtract(ex), ecy = exact(pts[c].getY()).subtract(ey);
+		BigDecimal exactDet = eax.multiply(eax).add(eay.multiply(eay))
+				.multiply(ebx.multiply(ecy).subtract(ecx.multiply(eby)))
+				.subtract(ebx.multiply(ebx).add(eby.multiply(eby))
+						.multiply(eax.multiply(ecy).subtract(ecx.multiply(eay))))
+				.add(ecx.multiply(ecx).add(ecy.multiply(ecy))
+						.multiply(eax.multiply(eby).subtract(ebx.multiply(eay))));
+		return exactDet.signum() > 0;
+	}
+
+	// -----------------------------------------------------------------
+	// Divide and conquer
+	// -----------------------------------------------------------------
+
+	/**
+	 * Triangulate pts[l..r] (at least two points). Returns the counterclockwise
+	 * convex hull edge out of the leftmost point and the clockwise convex hull
+	 * edge out of the rightmost point.
+	 */
+	QuadEdge[] triangulate(int l, int r) {
+		if (r - l + 1 == 2) {
+			QuadEdge e = makeEdge(l, r);
+			return new QuadEdge[] { e, e.sym() };
+		}
+		if (r - l + 1 == 3) {
+			QuadEdge a = makeEdge(l, l + 1);
+			QuadEdge b = makeEdge(l + 1, r);
+			splice(a.sym(), b);
+			int sg = cross(l, l + 1, r);
+			if (sg == 0) { // collinear
+				return new QuadEdge[] { a, b.sym() };
+			}
+			QuadEdge c = connect(b, a);
+			if (sg > 0) {
+				return new QuadEdge[] { a, b.sym() };
+			} else {
+				return new QuadEdge[] { c.sym(), c };
+			}
+		}
+		int mid = (l + r) / 2;
+		QuadEdge[] left = triangulate(l, mid);
+		QuadEdge[] right = triangulate(mid + 1, r);
+		QuadEdge ldo = left[0], ldi = left[1];
+		QuadEdge rdi = right[0], rdo = right[1];
+		while (true) { // find the lower common tangent
+			if (leftOf(rdi.org, ldi)) {
+				ldi = ldi.lnext();
+			} else if (rightOf(ldi.org, rdi)) {
+				rdi = rdi.sym().onext;
+			} else {
+				break;
+			}
+		}
+		QuadEdge basel = connect(rdi.sym(), ldi);
+		if (ldi.org == ldo.org)
+			ldo = basel.sym();
+		if (rdi.org == rdo.org)
+			rdo = basel;
+		while (true) { // zip the two halves together, bottom to top
+			QuadEdge lcand = basel.sym().onext;
+			if (rightOf(lcand.dest(), basel)) {
+				while (inCircle(basel.dest(), basel.org, lcand.dest(), lcand.onext.dest())) {
+					QuadEdge t = lcand.onext;
+					deleteEdge(lcand);
+					lcand = t;
+				}
+			}
+			QuadEdge rcand = basel.oprev();
+			if (rightOf(rcand.dest(), basel)) {
+				while (inCircle(basel.dest(), basel.org, rcand.dest(), rcand.oprev().dest())) {
+					QuadEdge t = rcand.oprev();
+					deleteEdge(rcand);
+					rcand = t;
+				}
+			}
+			boolean lvalid = rightOf(lcand.dest(), basel);
+			boolean rvalid = rightOf(rcand.dest(), basel);
+			if (!lvalid && !rvalid) // reached the upper common tangent
+				break;
+			if (!lvalid || (rvalid && inCircle(lcand.dest(), lcand.org, rcand.org, rcand.dest()))) {
+				basel = connect(rcand, basel.sym());
+			} else {
+				basel = connect(basel.sym(), lcand.sym());
+			}
+		}
+		return new QuadEdge[] { ldo, rdo };
+	}
+
+	// -----------------------------------------------------------------
+	// Public members
+	// -----------------------------------------------------------------
+
+	/**
+	 * Creates an engine for points lying within bbox.
+	 */
+	public DelaunayEMST(Rectangle2D bbox) {
+		this.bbox = new Rectangle2D(bbox);
+	}
+
+	/**
+	 * Compute the Delaunay edges of the given points as index pairs into the
+	 * list. The points must be distinct.
+	 */
+	public ArrayList<int[]> triangulate(List<LPoint> points) throws Exception {
+		int n = points.size();
+		Integer[] order = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			if (!bbox.contains(points.get(i).getPoint2D()))
+				throw new Exception("Attempt to insert a point outside bounding box");
+			order[i] = i;
+		}
+		Arrays.sort(order, Comparator.comparingDouble((Integer i) -> points.get(i).getX())
+				.thenComparingDouble(i -> points.get(i).getY()));
+		pts = new Point2D[n];
+		for (int i = 0; i < n; i++) {
+			pts[i] = points.get(order[i]).getPoint2D();
+			if (i > 0 && pts[i].equals(pts[i - 1]))
+				throw new Exception("Attempt to insert a duplicate point");
+		}
+		edges = new ArrayList<QuadEdge>();
+		if (n >= 2)
+			triangulate(0, n - 1);
+
+		ArrayList<int[]> result = new ArrayList<int[]>();
+		for (QuadEdge e : edges) {
+			if (!e.deleted)
+				result.add(new int[] { order[e.org], order[e.dest()] });
+		}
+		pts = null;
+		edges = null;
+		return result;
+	}
+
+	/**
+	 * Compute the EMST edges of the given points (in no particular order) by
+	 * running Kruskal's algorithm over the Delaunay edges.
+	 */
+	public ArrayList<Pair<LPoint>> build(List<LPoint> points) throws Exception {
+		ArrayList<int[]> delaunay = triangulate(points);
+		double[] len = new double[delaunay.size()];
+		ArrayList<Integer> byLength = new ArrayList<Integer>();
+		for (int i = 0; i < delaunay.size(); i++) {
+			int[] e = delaunay.get(i);
+			len[i] = points.get(e[0]).getPoint2D().distanceSq(points.get(e[1]).getPoint2D());
+			byLength.add(i);
+		}
+		Collections.sort(byLength, Comparator.comparingDouble(i -> len[i]));
+
+		ArrayList<Pair<LPoint>> result = new ArrayList<Pair<LPoint>>();
+		UnionFind comps = new UnionFind(points.size());
+		for (int i : byLength) {
+			int[] e = delaunay.get(i);
+			if (comps.union(e[0], e[1])) {
+				result.add(new Pair<LPoint>(points.get(e[0]), points.get(e[1])));
+				if (comps.size() == 1)
+					break;
+			}
+		}
+		if (points.size() > 1 && comps.size() != 1)
+			throw new Exception("Delaunay triangulation is not connected");
+		return result;
+	}
+}
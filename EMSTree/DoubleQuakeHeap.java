@@ -0,0 +1,340 @@
+package cmsc420_s22;
+
+import java.util.Arrays;
+
+/**
+ * A quake heap specialized to double keys and int values. The nodes live in
+ * parallel primitive arrays (keys, values, levels, links) and are referred to
+ * by index; an entry's handle is the index of its leaf. Freed nodes are kept
+ * on a free list, so once the arrays have grown to the peak number of nodes,
+ * insert, decreaseKey and extractMin allocate nothing.
+ *
+ * The structure otherwise follows QuakeHeap: roots are kept in a doubly
+ * linked list per level, the root of minimum key is cached, and a quake is
+ * triggered when a level holds more than ratio times the nodes of the level
+ * below. Roots are paired in list order, without sorting.
+ */
+
+public class DoubleQuakeHeap {
+
+	private static final int NIL = -1; // null link
+
+	// -----------------------------------------------------------------
+	// Private members
+	// -----------------------------------------------------------------
+
+	private double[] key; // per node: key
+	private int[] value; // per leaf: value
+	private int[] level; // per node: level (leaf = 0)
+	private int[] left, right, parent; // per node: tree links
+	private int[] prev, next; // per root: neighbors in its level's root list
+	private int nNodes; // number of node slots ever used
+	private int free; // first free node (linked by next)
+
+	private int nLevels; // number of levels
+	private int[] rootHead, rootTail; // per level: root list
+	private int[] rootCt; // per level: number of roots
+	private int[] nodeCt; // per level: number of nodes
+	private int minRoot; // root of smallest key (if minValid)
+	private boolean minValid; // is minRoot up to date?
+	private int[] stack; // scratch stack for quake
+	private int lastQuakeSize; // number of nodes removed by the last quake
+	private double ratio = 0.75;
+
+	// -----------------------------------------------------------------
+	// Local utilities
+	// -----------------------------------------------------------------
+
+	/**
+	 * Take a node from the free list (growing the arrays if there is none).
+	 */
+	int newNode(double x, int v, int lev, int l, int r) {
+		int u;
+		if (free != NIL) {
+			u = free;
+			free = next[u];
+		} else {
+			if (nNodes == key.length) {
+				int capacity = Math.max(16, 2 * nNodes);
+				key = Arrays.copyOf(key, capacity);
+				value = Arrays.copyOf(value, capacity);
+				level = Arrays.copyOf(level, capacity);
+				left = Arrays.copyOf(left, capacity);
+				right = Arrays.copyOf(right, capacity);
+				parent = Arrays.copyOf(parent, capacity);
+				prev = Arrays.copyOf(prev, capacity);
+				next = Arrays.copyOf(next, capacity);
+				stack = Arrays.copyOf(stack, capacity);
+			}
+			u = nNodes++;
+		}
+		key[u] = x;
+		value[u] = v;
+		level[u] = lev;
+		left[u] = l;
+		right[u] = r;
+		parent[u] = prev[u] = next[u] = NIL;
+		nodeCt[lev] += 1;
+		return u;
+	}
+
+	void freeNode(int u) {
+		nodeCt[level[u]] -= 1;
+		level[u] = -1; // mark as free
+		next[u] = free;
+		free = u;
+	}
+
+	void makeRoot(int u) {
+		parent[u] = NIL;
+		int lev = level[u];
+		prev[u] = rootTail[lev];
+		next[u] = NIL;
+		if (rootTail[lev] == NIL) {
+			rootHead[lev] = u;
+		} else {
+			next[rootTail[lev]] = u;
+		}
+		rootTail[lev] = u;
+		rootCt[lev] += 1;
+		if (minValid && (minRoot == NIL || key[u] < key[minRoot] || (key[u] == key[minRoot] && lev < level[minRoot]))) {
+			minRoot = u;
+		}
+	}
+
+	void removeRoot(int u) {
+		int lev = level[u];
+		if (prev[u] == NIL) {
+			rootHead[lev] = next[u];
+		} else {
+			next[prev[u]] = next[u];
+		}
+		if (next[u] == NIL) {
+			rootTail[lev] = prev[u];
+		} else {
+			prev[next[u]] = prev[u];
+		}
+		prev[u] = next[u] = NIL;
+		rootCt[lev] -= 1;
+		if (u == minRoot)
+			minValid = false;
+	}
+
+	/**
+	 * Link roots u and v (same level) under a new root, which is returned.
+	 */
+	int link(int u, int v) {
+		if (key[v] < key[u]) {
+			int t = u;
+			u = v;
+			v = t;
+		}
+		int w = newNode(key[u], 0, level[u] + 1, u, v);
+		parent[u] = parent[v] = w;
+		return w;
+	}
+
+	void cut(int w) {
+		int v = right[w];
+		if (v != NIL) {
+			right[w] = NIL;
+			makeRoot(v);
+		}
+	}
+
+	int minRoot() {
+		if (!minValid) {
+			minRoot = NIL;
+			for (int lev = 0; lev < nLevels; lev++) {
+				for (int u = rootHead[lev]; u != NIL; u = next[u]) {
+					if (minRoot == NIL || key[u] < key[minRoot])
+						minRoot = u;
+				}
+			}
+			minValid = true;
+		}
+		return minRoot;
+	}
+
+	/**
+	 * Link roots in pairs, bottom-up, in the order of the root lists.
+	 */
+	void mergeTrees() {
+		for (int lev = 0; lev < nLevels - 1; lev++) {
+			while (rootCt[lev] >= 2) {
+				int u = rootHead[lev];
+				removeRoot(u);
+				int v = rootHead[lev];
+				removeRoot(v);
+				makeRoot(link(u, v));
+			}
+		}
+	}
+
+	/**
+	 * If some level holds too many nodes, discard every node above it, making
+	 * the nodes at that level roots. Only the discarded nodes are visited.
+	 */
+	void quake() {
+		for (int lev = 0; lev < nLevels - 1; lev++) {
+			if (nodeCt[lev + 1] > ratio * nodeCt[lev]) {
+				lastQuakeSize = 0;
+				for (int i = lev + 1; i < nLevels; i++) {
+					while (rootHead[i] != NIL) {
+						int top = 0;
+						stack[top++] = rootHead[i];
+						removeRoot(rootHead[i]);
+						while (top > 0) {
+							int u = stack[--top];
+							if (level[u] == lev) {
+								makeRoot(u);
+							} else {
+								stack[top++] = left[u];
+								if (right[u] != NIL)
+									stack[top++] = right[u];
+								freeNode(u);
+								lastQuakeSize += 1;
+							}
+						}
+					}
+				}
+				return;
+			}
+		}
+	}
+
+	// -----------------------------------------------------------------
+	// Public members
+	// -----------------------------------------------------------------
+
+	/**
+	 * Creates an empty heap with the given number of levels.
+	 */
+	public DoubleQuakeHeap(int nLevels) {
+		this.nLevels = nLevels;
+		key = new double[0];
+		value = level = left = right = parent = prev = next = stack = new int[0];
+		rootHead = new int[nLevels];
+		rootTail = new int[nLevels];
+		rootCt = new int[nLevels];
+		nodeCt = new int[nLevels];
+		clear();
+	}
+
+	/**
+	 * Clear the entire structure. The node arrays are kept for reuse.
+	 */
+	public void clear() {
+		nNodes = 0;
+		free = NIL;
+		Arrays.fill(rootHead, NIL);
+		Arrays.fill(rootTail, NIL);
+		Arrays.fill(rootCt, 0);
+		Arrays.fill(nodeCt, 0);
+		minRoot = NIL;
+		minValid = true;
+		lastQuakeSize = 0;
+	}
+
+	/**
+	 * Insert key-value pair, returning a handle to the entry. The handle is
+	 * valid until the entry is extracted or the heap is cleared.
+	 */
+	public int insert(double x, int v) {
+		int u = newNode(x, v, 0, NIL, NIL);
+		makeRoot(u);
+		return u;
+	}
+
+	/**
+	 * Get the minimum key from the heap.
+	 */
+	public double getMinKey() throws Exception {
+		if (nodeCt[0] == 0) {
+			throw new Exception("Empty heap");
+		}
+		return key[minRoot()];
+	}
+
+	/**
+	 * Get the value of an entry of minimum key.
+	 */
+	public int getMinValue() throws Exception {
+		if (nodeCt[0] == 0) {
+			throw new Exception("Empty heap");
+		}
+		int u = minRoot();
+		while (left[u] != NIL)
+			u = left[u];
+		return value[u];
+	}
+
+	/**
+	 * Remove an entry of minimum key and return its value.
+	 */
+	public int extractMin() throws Exception {
+		if (nodeCt[0] == 0) {
+			throw new Exception("Empty heap");
+		}
+		int u = minRoot();
+		removeRoot(u);
+		int result = 0;
+		while (u != NIL) { // delete the left path, making right children roots
+			cut(u);
+			int l = left[u];
+			if (l == NIL)
+				result = value[u];
+			freeNode(u);
+			u = l;
+		}
+		mergeTrees();
+		quake();
+		return result;
+	}
+
+	/**
+	 * Lower the key of the entry with the given handle.
+	 */
+	public void decreaseKey(int h, double newKey) throws Exception {
+		if (h < 0 || h >= nNodes || level[h] != 0) {
+			throw new Exception("Attempt to decrease the key of a nonexistent entry");
+		}
+		int u = h, uChild;
+		do {
+			key[u] = newKey;
+			uChild = u;
+			u = parent[u];
+		} while (u != NIL && uChild == left[u]);
+		if (u != NIL) {
+			cut(u); // uChild becomes a root
+		} else if (minValid && uChild != minRoot) {
+			if (newKey < key[minRoot] || (newKey == key[minRoot] && level[uChild] < level[minRoot])) {
+				minRoot = uChild;
+			} else if (newKey == key[minRoot] && level[uChild] == level[minRoot]) {
+				minValid = false;
+			}
+		}
+	}
+
+	/**
+	 * Number of entries.
+	 */
+	public int size() {
+		return nodeCt[0];
+	}
+
+	/**
+	 * Number of nodes removed by the most recent quake (0 if there has been
+	 * none).
+	 */
+	public int getLastQuakeSize() {
+		return lastQuakeSize;
+	}
+
+	public void setQuakeRatio(double newRatio) throws Exception {
+		if (newRatio < 0.5 || newRatio > 1) {
+			throw new Exception("Quake ratio is outside valid bounds");
+		}
+		ratio = newRatio;
+	}
+}
@@ -1,164 +1,170 @@
 package cmsc420_s22;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
-
-public class EMSTree<LPoint extends LabeledPoint2D> {
-
-	private ArrayList<LPoint> pointList;
-	private HashSet<LPoint> inEMST;
-	private ArrayList<Pair<LPoint>> edgeList;
-	private MinimalKdTree<LPoint> kdTree;
-	private QuakeHeap<Double, Pair<LPoint>> heap;
-	private HashMap<LPoint, ArrayList<LPoint>> dependents;
-	private int ptsinset;
+import java.util.List;
+
+/**
+ * Euclidean minimum spanning tree of labeled points in the plane. buildEMST
+ * runs Prim's algorithm (see PrimEMST) over a spatial index holding the points
+ * not yet in the tree; the other build methods use alternative engines and
+ * report the same tree.
+ */
+
+public class EMSTree<LPoint extends LabeledPoint2D> extends PrimEMST<LPoint> {
+
+	private SpatialIndex<LPoint> index; // the points not yet in the EMST
 	private Rectangle2D rec;
 
 	public EMSTree(Rectangle2D bbox) {
-		pointList = new ArrayList<LPoint>();
-		inEMST = new HashSet<LPoint>();
-		edgeList = new ArrayList<Pair<LPoint>>();
-		kdTree = new MinimalKdTree<LPoint>(bbox);
-		heap = new QuakeHeap<Double, Pair<LPoint>>(10);
-		dependents = new HashMap<LPoint, ArrayList<LPoint>>();
-		ptsinset = 0;
-		rec = bbox;
+		this(bbox, new MinimalKdTree<LPoint>(bbox));
 	}
 
-	public void addPoint(LPoint pt) throws Exception {
-		if (pt != null) {
-			pointList.add(pt);
-			dependents.put(pt, new ArrayList<LPoint>());
-			ptsinset++;
-			kdTree.insert_adding(pt);
-			LPoint nn = kdTree.nearestNeighbor(pt, kdTree.getroot(), rec, null);
-			if (nn != null) {
-				Pair<LPoint> nnpair = new Pair<LPoint>(pt, nn);
-				heap.insert(pt.getPoint2D().distanceSq(nn.getPoint2D()), nnpair);
-			}
-		}
+	/**
+	 * Creates an EMSTree that stores its point set in the given (empty) spatial
+	 * index. The index decides how fast the nearest-neighbor queries of
+	 * buildEMST are; for instance a GridIndex suits dense, roughly uniform
+	 * points.
+	 */
+	public EMSTree(Rectangle2D bbox, SpatialIndex<LPoint> index) {
+		this(bbox, index, newHeap());
+	}
+
+	/**
+	 * Creates an EMSTree that stores its point set in the given spatial index
+	 * and its candidate edges in the given (empty) heap. For instance a
+	 * QuakeHeap with setDeterministic(false) skips the sorting of its roots.
+	 * The log and the tree do not depend on the heap.
+	 */
+	public EMSTree(Rectangle2D bbox, SpatialIndex<LPoint> index, MinHeap<EdgeKey, Pair<LPoint>> heap) {
+		super(heap);
+		this.index = index;
+		rec = bbox;
 	}
 
-	public void clear() {
-		edgeList.clear();
-		inEMST.clear();
-		heap.clear();
-		dependents.clear();
-		kdTree.clear();
-		pointList.clear();
-		ptsinset = 0;
+	/**
+	 * Creates an EMSTree whose point set is stored in a height-balanced kd-tree
+	 * (HBkdTree) instead of a MinimalKdTree. This keeps nearest-neighbor queries
+	 * logarithmic however many points addEdge deletes.
+	 */
+	public EMSTree(Rectangle2D bbox, int maxHeightDifference) {
+		this(bbox, new HBkdTree<LPoint>(maxHeightDifference, bbox));
 	}
 
-	public int size() {
-		return ptsinset;
+	/**
+	 * Build the EMST with Boruvka's algorithm instead of Prim's. This produces
+	 * the same tree as buildEMST (edges are reported in the order Prim's
+	 * algorithm would add them from start) but does not generate the new-nn
+	 * log. Returns the result of listEMST.
+	 */
+	public ArrayList<String> buildEMSTBoruvka(LPoint start) throws Exception {
+		if (!rec.contains(start.getPoint2D())) {
+			throw new Exception("Attempt to insert a point outside bounding box");
+		}
+		ArrayList<LPoint> pts = new ArrayList<LPoint>(getPointList());
+		if (!pts.contains(start))
+			pts.add(start);
+		BoruvkaEMST<LPoint> engine = new BoruvkaEMST<LPoint>(rec);
+		setEdgeList(start, engine.build(pts), this::distance);
+		return listEMST();
 	}
 
-	public ArrayList<String> buildEMST(LPoint start) throws Exception {
-		ArrayList<String> result = new ArrayList<String>();
-		ArrayList<String> record = new ArrayList<String>();
-		ArrayList<String> record2;
+	/**
+	 * Same as buildEMSTBoruvka, but the nearest-neighbor searches of each
+	 * Boruvka round run on a fork-join pool with the given number of threads.
+	 */
+	public ArrayList<String> buildEMSTParallel(LPoint start, int parallelism) throws Exception {
+		if (!rec.contains(start.getPoint2D())) {
+			throw new Exception("Attempt to insert a point outside bounding box");
+		}
+		ArrayList<LPoint> pts = new ArrayList<LPoint>(getPointList());
+		if (!pts.contains(start))
+			pts.add(start);
+		BoruvkaEMST<LPoint> engine = new BoruvkaEMST<LPoint>(rec, parallelism);
+		setEdgeList(start, engine.build(pts), this::distance);
+		return listEMST();
+	}
 
+	/**
+	 * Build the EMST by running Kruskal's algorithm over the Delaunay
+	 * triangulation of the points. This takes O(n log n) time and produces the
+	 * same tree as buildEMST when no two edges have equal length (edges are
+	 * reported in Prim order from start). Returns the result of listEMST.
+	 */
+	public ArrayList<String> buildEMSTDelaunay(LPoint start) throws Exception {
 		if (!rec.contains(start.getPoint2D())) {
 			throw new Exception("Attempt to insert a point outside bounding box");
-		} else {
-			initializeEMST(start);
-			LPoint nn = kdTree.nearestNeighbor(start, kdTree.getroot(), rec, null);
-			if (nn == null) {
-				return new ArrayList<String>();
-			}
-
-			String line1 = "new-nn: (" + start.getLabel() + "->" + nn.getLabel() + ")";
-			record.add(line1);
-			result.add(line1);
-			addNearNeighbor(start, nn);
-			String line2;
-
-			while (kdTree.size() != 0) {
-				record2 = new ArrayList<String>();
-				line2 = null;
-				if (heap == null) {
-					return new ArrayList<String>();
-				}
-				Pair<LPoint> edge = heap.extractMin();
-				LPoint pt2 = edge.getSecond();
-				if (!inEMST.contains(pt2)) {
-					addEdge(edge);
-					line2 = "add: " + edge + " new-nn:";
-				}
-
-				for (LPoint pt : inEMST) {
-					String line3;
-					LPoint nn2 = kdTree.nearestNeighbor(pt, kdTree.getroot(), rec, null);
-					if (nn2 != null) {
-						line3 = " (" + pt.getLabel() + "->" + nn2.getLabel() + ")";
-						if (!record.contains(line3)) {
-							record2.add(line3);
-						}
-					}
-				}
-				Collections.sort(record2);
-				for (String str : record2) {
-					record.add(str);
-					line2 = line2.concat(str);
-				}
-				if (line2 != null)
-					result.add(line2);
-			}
-			return result;
 		}
+		ArrayList<LPoint> pts = new ArrayList<LPoint>(getPointList());
+		if (!pts.contains(start))
+			pts.add(start);
+		DelaunayEMST<LPoint> engine = new DelaunayEMST<LPoint>(rec);
+		setEdgeList(start, engine.build(pts), this::distance);
+		return listEMST();
 	}
 
-	void initializeEMST(LPoint start) throws Exception {
-		edgeList.clear();
-		inEMST.clear();
-		heap.clear();
-		dependents.replaceAll((k, v) -> new ArrayList<LPoint>());
-		kdTree.clear();
-		for (LPoint pt : pointList) {
-			if (pt != start)
-				kdTree.insert(pt);
+	/**
+	 * Build the EMST on the sphere, treating the coordinates as longitude and
+	 * latitude in degrees (as for Airport). Edge lengths are great-circle
+	 * distances, so the tree is correct near the poles and across the
+	 * antimeridian. Edges are reported in Prim order from start. Returns the
+	 * result of listEMST.
+	 */
+	public ArrayList<String> buildEMSTGeodesic(LPoint start) throws Exception {
+		if (!rec.contains(start.getPoint2D())) {
+			throw new Exception("Attempt to insert a point outside bounding box");
 		}
-		inEMST.add(start);
-	}
-
-	void addEdge(Pair<LPoint> edge) throws Exception {
-		LPoint pt2 = edge.getSecond();
-
-		edgeList.add(edge);
-		inEMST.add(pt2);
-		kdTree.delete(pt2);
-		ArrayList<LPoint> dep2 = dependents.get(pt2);
-		dep2.add(pt2);
-		for (LPoint pt3 : dep2) {
-			LPoint nn3 = kdTree.nearestNeighbor(pt3, kdTree.getroot(), rec, null);
-			if (nn3 == null)
-				break;
-			addNearNeighbor(pt3, nn3);
+		ArrayList<LPoint> pts = new ArrayList<LPoint>(size() + 1);
+		pts.add(start); // the engine grows the tree from the first point
+		for (LPoint pt : getPointList()) {
+			if (!pt.equals(start))
+				pts.add(pt);
 		}
+		GeodesicEMST<LPoint> engine = new GeodesicEMST<LPoint>(rec);
+		setEdgeList(start, engine.build(pts)); // already in Prim order from start
+		return listEMST();
 	}
 
-	private double distance(LPoint pt, LPoint nn) {
-		return Math.pow(pt.getX() - nn.getX(), 2) + Math.pow(pt.getY() - nn.getY(), 2);
+	// -----------------------------------------------------------------
+	// Geometry and index
+	// -----------------------------------------------------------------
+
+	boolean inBox(LPoint pt) {
+		return rec.contains(pt.getPoint2D());
+	}
+
+	LPoint find(LPoint pt) {
+		return index.find(pt.getPoint2D());
 	}
 
-	private void addNearNeighbor(LPoint pt, LPoint nn) {
-		double dist = distance(pt, nn);
-		Pair<LPoint> pair = new Pair<LPoint>(pt, nn);
+	void insert(LPoint pt) throws Exception {
+		index.insert(pt);
+	}
 
-		heap.insert(dist, pair);
-		dependents.get(nn).add(pt);
+	void delete(LPoint pt) throws Exception {
+		index.delete(pt.getPoint2D());
 	}
 
-	public ArrayList<String> listEMST() {
-		ArrayList<String> result = new ArrayList<String>();
+	void bulkLoad(List<LPoint> pts) throws Exception {
+		index.bulkLoad(pts);
+	}
 
-		for (Pair<LPoint> e : edgeList) {
-			String str = "(" + e.getFirst().getLabel() + "," + e.getSecond().getLabel() + ")";
-			result.add(str);
-		}
-		return result;
+	LPoint nearestNeighbor(LPoint pt) {
+		return index.nearestNeighbor(pt.getPoint2D());
 	}
 
+	int indexSize() {
+		return index.size();
+	}
+
+	void clearIndex() {
+		index.clear();
+	}
+
+	double distance(LPoint pt, LPoint nn) {
+		return Math.pow(pt.getX() - nn.getX(), 2) + Math.pow(pt.getY() - nn.getY(), 2);
+	}
+
+	String getLabel(LPoint pt) {
+		return pt.getLabel();
+	}
 }
@@ -0,0 +1,73 @@
+package cmsc420_s22;
+
+import java.util.List;
+
+/**
+ * EMSTree for d-dimensional points. The algorithm and the output of buildEMST
+ * and listEMST are those of EMSTree (both run PrimEMST); the points not yet in
+ * the tree are held in a KdTreeD.
+ */
+
+public class EMSTreeD<LPoint extends LabeledPointD> extends PrimEMST<LPoint> {
+
+	private KdTreeD<LPoint> kdTree;
+	private RectangleD rec;
+
+	public EMSTreeD(RectangleD bbox) {
+		this(bbox, newHeap());
+	}
+
+	/**
+	 * Creates an EMSTreeD that stores its candidate edges in the given (empty)
+	 * heap (see the corresponding EMSTree constructor).
+	 */
+	public EMSTreeD(RectangleD bbox, MinHeap<EdgeKey, Pair<LPoint>> heap) {
+		super(heap);
+		kdTree = new KdTreeD<LPoint>(bbox);
+		rec = bbox;
+	}
+
+	// -----------------------------------------------------------------
+	// Geometry and index
+	// -----------------------------------------------------------------
+
+	boolean inBox(LPoint pt) {
+		return rec.contains(pt.getPointD());
+	}
+
+	LPoint find(LPoint pt) {
+		return kdTree.find(pt.getPointD());
+	}
+
+	void insert(LPoint pt) throws Exception {
+		kdTree.insert(pt);
+	}
+
+	void delete(LPoint pt) throws Exception {
+		kdTree.delete(pt.getPointD());
+	}
+
+	void bulkLoad(List<LPoint> pts) throws Exception {
+		kdTree.bulkLoad(pts);
+	}
+
+	LPoint nearestNeighbor(LPoint pt) {
+		return kdTree.nearestNeighbor(pt.getPointD());
+	}
+
+	int indexSize() {
+		return kdTree.size();
+	}
+
+	void clearIndex() {
+		kdTree.clear();
+	}
+
+	double distance(LPoint pt, LPoint nn) {
+		return pt.getPointD().distanceSq(nn.getPointD());
+	}
+
+	String getLabel(LPoint pt) {
+		return pt.getLabel();
+	}
+}
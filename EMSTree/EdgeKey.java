@@ -0,0 +1,36 @@
+package cmsc420_s22;
+
+/**
+ * The heap key of a candidate edge in Prim's algorithm: its squared length,
+ * then the sequence number of the offer. Equal lengths are thus extracted in
+ * the order they were offered, whatever heap is used.
+ */
+
+public class EdgeKey implements Comparable<EdgeKey> {
+
+	private double dist; // squared length
+	private long seq; // sequence number of the offer
+
+	public EdgeKey(double dist, long seq) {
+		this.dist = dist;
+		this.seq = seq;
+	}
+
+	public double getDist() {
+		return dist;
+	}
+
+	public long getSeq() {
+		return seq;
+	}
+
+	public int compareTo(EdgeKey o) {
+		int c = Double.compare(dist, o.dist);
+		return (c != 0 ? c : Long.compare(seq, o.seq));
+	}
+
+	@Override
+	public String toString() {
+		return dist + "#" + seq;
+	}
+}
@@ -0,0 +1,350 @@
+package cmsc420_s22;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A kd-tree stored as parallel primitive arrays (structure of arrays). Node i
+ * has coordinates x[i], y[i], cutting dimension cutDim[i] and children
+ * left[i], right[i] (-1 if none), and stores the point points.get(i). A
+ * distance test thus touches only two doubles, and a node costs about 30 bytes
+ * instead of several objects. Bulk-loaded trees are laid out in preorder, so
+ * a search mostly moves forward through the arrays.
+ *
+ * Deletion is lazy: the node is marked dead, and the whole tree is rebuilt
+ * once half of its nodes are dead.
+ */
+
+public class FlatKdTree<LPoint extends LabeledPoint2D> implements SpatialIndex<LPoint> {
+
+	// -----------------------------------------------------------------
+	// Private data
+	// -----------------------------------------------------------------
+
+	private double[] x, y; // node coordinates
+	private byte[] cutDim; // cutting dimension (0 == x, 1 == y)
+	private int[] left, right; // children (-1 if none)
+	private boolean[] dead; // lazily deleted?
+	private ArrayList<LPoint> points; // points.get(i) is stored in node i
+	private int root; // root node (-1 if empty)
+	private int nNodes; // number of nodes in use
+	private int nPoints; // number of live points
+	private Rectangle2D bbox; // the bounding box
+
+	// -----------------------------------------------------------------
+	// Local utilities
+	// -----------------------------------------------------------------
+
+	/**
+	 * Allocate the arrays for the given number of nodes, keeping the first
+	 * nNodes entries.
+	 */
+	void resize(int capacity) {
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+		cutDim = Arrays.copyOf(cutDim, capacity);
+		left = Arrays.copyOf(left, capacity);
+		right = Arrays.copyOf(right, capacity);
+		dead = Arrays.copyOf(dead, capacity);
+	}
+
+	/**
+	 * Append a new leaf node and return its index.
+	 */
+	int newNode(LPoint pt, int cd) {
+		if (nNodes == x.length)
+			resize(Math.max(16, 2 * nNodes));
+		int i = nNodes++;
+		x[i] = pt.getX();
+		y[i] = pt.getY();
+		cutDim[i] = (byte) cd;
+		left[i] = right[i] = -1;
+		dead[i] = false;
+		points.add(pt);
+		return i;
+	}
+
+	double coord(int i, int cd) {
+		return (cd == 0 ? x[i] : y[i]);
+	}
+
+	/**
+	 * Build a balanced subtree from pts[lo..hi-1], laying out the nodes in
+	 * preorder. The splitting point is a median along cd, and points with the
+	 * same coordinate go right.
+	 */
+	int build(LPoint[] pts, int lo, int hi, int cd) throws Exception {
+		if (lo >= hi) {
+			return -1;
+		}
+		int mid = select(pts, lo, hi, (lo + hi) / 2, cd);
+		int i = newNode(pts[mid], cd);
+		left[i] = build(pts, lo, mid, 1 - cd);
+		right[i] = build(pts, mid + 1, hi, 1 - cd);
+		return i;
+	}
+
+	/**
+	 * Three-way quickselect along cd (see MinimalKdTree.select). Returns the
+	 * first index holding the k-th smallest coordinate, where the point with
+	 * the smallest other coordinate among those holding it is placed. A point
+	 * equal to it is then in the same range, so duplicates are detected here:
+	 * two equal points stay together until one of them is selected.
+	 */
+	int select(LPoint[] pts, int lo, int hi, int k, int cd) throws Exception {
+		while (true) {
+			double v = pts[(lo + hi) >>> 1].get(cd); // pivot value
+			int lt = lo, i = lo, gt = hi; // [lo,lt) < v, [lt,i) == v, [gt,hi) > v
+			while (i < gt) {
+				double c = pts[i].get(cd);
+				if (c < v) {
+					LPoint t = pts[lt];
+					pts[lt++] = pts[i];
+					pts[i++] = t;
+				} else if (c > v) {
+					LPoint t = pts[--gt];
+					pts[gt] = pts[i];
+					pts[i] = t;
+				} else {
+					i++;
+				}
+			}
+			if (k < lt) {
+				hi = lt;
+			} else if (k >= gt) {
+				lo = gt;
+			} else {
+				int m = lt;
+				boolean tied = false; // does another point share m's coordinates?
+				for (int j = lt + 1; j < gt; j++) {
+					double c = pts[j].get(1 - cd), cm = pts[m].get(1 - cd);
+					if (c < cm) {
+						m = j;
+						tied = false;
+					} else if (c == cm) {
+						tied = true;
+					}
+				}
+				if (tied) {
+					throw new Exception("Attempt to insert a duplicate point");
+				}
+				LPoint t = pts[lt];
+				pts[lt] = pts[m];
+				pts[m] = t;
+				return lt;
+			}
+		}
+	}
+
+	/**
+	 * Index of the node holding (px, py), dead or alive (-1 if none).
+	 */
+	int findNode(double px, double py) {
+		int i = root;
+		while (i >= 0) {
+			if (x[i] == px && y[i] == py) {
+				return i;
+			}
+			double c = (cutDim[i] == 0 ? px : py);
+			i = (c < coord(i, cutDim[i]) ? left[i] : right[i]);
+		}
+		return -1;
+	}
+
+	/**
+	 * Nearest live node to (qx, qy) in the subtree of i. As in
+	 * MinimalKdTree.nearestNode, off0 and off1 are q's offsets from i's cell,
+	 * and the caller's best (at squared distance bestDist) is returned if
+	 * nothing closer is found. Ties go to the point first in (x, y) order.
+	 */
+	int nearestNode(double qx, double qy, int i, double off0, double off1, int best, double bestDist) {
+		if (i < 0) {
+			return best;
+		}
+		double dx = qx - x[i], dy = qy - y[i];
+		double d = dx * dx + dy * dy;
+		if ((d < bestDist || (d == bestDist && precedes(i, best))) && !dead[i]) {
+			best = i;
+			bestDist = d;
+		}
+		int cd = cutDim[i];
+		double diff = (cd == 0 ? dx : dy); // signed offset from the cut
+		int near = (diff < 0 ? left[i] : right[i]);
+		int far = (diff < 0 ? right[i] : left[i]);
+		int b = nearestNode(qx, qy, near, off0, off1, best, bestDist);
+		if (b != best) {
+			best = b;
+			bestDist = (qx - x[b]) * (qx - x[b]) + (qy - y[b]) * (qy - y[b]);
+		}
+		if (cd == 0) {
+			off0 = diff;
+		} else {
+			off1 = diff;
+		}
+		if (off0 * off0 + off1 * off1 <= bestDist) { // is far side viable? (it may hold a tie)
+			best = nearestNode(qx, qy, far, off0, off1, best, bestDist);
+		}
+		return best;
+	}
+
+	/**
+	 * Does node i's point come before best's in (x, y) order? This breaks ties
+	 * between equidistant nearest neighbors, as in MinimalKdTree.
+	 */
+	boolean precedes(int i, int best) {
+		return best < 0 || x[i] < x[best] || (x[i] == x[best] && y[i] < y[best]);
+	}
+
+	// -----------------------------------------------------------------
+	// Public members
+	// -----------------------------------------------------------------
+
+	/**
+	 * Creates an empty tree.
+	 */
+	public FlatKdTree(Rectangle2D bbox) {
+		this.bbox = new Rectangle2D(bbox);
+		clear();
+	}
+
+	/**
+	 * Number of points in the tree.
+	 */
+	public int size() {
+		return nPoints;
+	}
+
+	/**
+	 * Replace the contents of the tree by the given points, building a balanced
+	 * tree in O(n log n) time. Duplicates are found while building (see
+	 * select); if there is one, the tree is left empty.
+	 */
+	public void bulkLoad(List<LPoint> pts) throws Exception {
+		@SuppressWarnings("unchecked")
+		LPoint[] array = (LPoint[]) new LabeledPoint2D[pts.size()];
+		for (int i = 0; i < array.length; i++) {
+			LPoint pt = pts.get(i);
+			if (!bbox.contains(pt.getPoint2D())) {
+				throw new Exception("Attempt to insert a point outside bounding box");
+			}
+			array[i] = pt;
+		}
+		clear();
+		resize(array.length);
+		points.ensureCapacity(array.length);
+		try {
+			root = build(array, 0, array.length, 0);
+		} catch (Exception e) {
+			clear();
+			throw e;
+		}
+		nPoints = array.length;
+	}
+
+	/**
+	 * Find a point in the tree.
+	 */
+	public LPoint find(Point2D pt) {
+		int i = findNode(pt.getX(), pt.getY());
+		return (i < 0 || dead[i] ? null : points.get(i));
+	}
+
+	/**
+	 * Insert a point. The new node is appended at the end of the arrays.
+	 */
+	public void insert(LPoint pt) throws Exception {
+		if (!bbox.contains(pt.getPoint2D())) {
+			throw new Exception("Attempt to insert a point outside bounding box");
+		}
+		double px = pt.getX(), py = pt.getY();
+		int i = findNode(px, py);
+		if (i >= 0) { // coordinates already present
+			if (!dead[i])
+				throw new Exception("Attempt to insert a duplicate point");
+			dead[i] = false; // revive the tombstone
+			points.set(i, pt);
+		} else if (root < 0) {
+			root = newNode(pt, 0);
+		} else {
+			int p = root;
+			while (true) { // descend to the empty child slot
+				boolean onLeft = (cutDim[p] == 0 ? px : py) < coord(p, cutDim[p]);
+				int next = (onLeft ? left[p] : right[p]);
+				if (next < 0) {
+					int u = newNode(pt, 1 - cutDim[p]);
+					if (onLeft) {
+						left[p] = u;
+					} else {
+						right[p] = u;
+					}
+					break;
+				}
+				p = next;
+			}
+		}
+		nPoints += 1;
+	}
+
+	/**
+	 * Delete a point by marking its node dead. Once half of the nodes are
+	 * dead, the tree is rebuilt from the live points.
+	 */
+	public void delete(Point2D pt) throws Exception {
+		int i = findNode(pt.getX(), pt.getY());
+		if (i < 0 || dead[i]) {
+			throw new Exception("Attempt to delete a nonexistent point");
+		}
+		dead[i] = true;
+		nPoints -= 1;
+		if (2 * nPoints < nNodes) {
+			ArrayList<LPoint> live = new ArrayList<LPoint>(nPoints);
+			for (int j = 0; j < nNodes; j++) {
+				if (!dead[j])
+					live.add(points.get(j));
+			}
+			bulkLoad(live);
+		}
+	}
+
+	/**
+	 * Find the point closest to q (null if the tree is empty).
+	 */
+	public LPoint nearestNeighbor(Point2D q) {
+		int i = nearestIndex(q.getX(), q.getY());
+		return (i < 0 ? null : points.get(i));
+	}
+
+	/**
+	 * Index of the node closest to (qx, qy), or -1 if the tree is empty. The
+	 * point is getPoint(index). The search does not allocate any objects.
+	 */
+	public int nearestIndex(double qx, double qy) {
+		double off0 = MinimalKdTree.offset(qx, bbox.getLow().getX(), bbox.getHigh().getX());
+		double off1 = MinimalKdTree.offset(qy, bbox.getLow().getY(), bbox.getHigh().getY());
+		return nearestNode(qx, qy, root, off0, off1, -1, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * The point stored in node i.
+	 */
+	public LPoint getPoint(int i) {
+		return points.get(i);
+	}
+
+	/**
+	 * Remove all items, resulting in an empty tree.
+	 */
+	public void clear() {
+		x = new double[0];
+		y = new double[0];
+		cutDim = new byte[0];
+		left = new int[0];
+		right = new int[0];
+		dead = new boolean[0];
+		points = new ArrayList<LPoint>();
+		root = -1;
+		nNodes = 0;
+		nPoints = 0;
+	}
+}
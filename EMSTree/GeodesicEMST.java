@@ -0,0 +1,290 @@
+package cmsc420_s22;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * EMST construction on the sphere. The points are taken as (longitude,
+ * latitude) in degrees, as for Airport, and mapped to unit vectors in 3D. The
+ * chord between two unit vectors grows monotonically with the great-circle
+ * distance, so the minimum spanning tree under chord length is the geodesic
+ * one, and comparing squared chords needs no trigonometry.
+ *
+ * The tree is built by Prim's algorithm. Every tree point keeps its nearest
+ * non-tree point, found in a 3D kd-tree holding the non-tree points; when that
+ * point joins the tree, only the points that depended on it search again (as
+ * in EMSTree.buildEMST). The heap is a DoubleQuakeHeap holding one entry per
+ * non-tree point, keyed by its distance to the closest tree point that has it
+ * as nearest neighbor (as in the eager mode of EMSTree).
+ */
+
+public class GeodesicEMST<LPoint extends LabeledPoint2D> {
+
+	// -----------------------------------------------------------------
+	// Private data
+	// -----------------------------------------------------------------
+
+	private Rectangle2D bbox; // the bounding box (in degrees)
+	private double[][] v; // v[d][i] is coordinate d of point i's unit vector
+	private int[] order; // kd-tree: point index at each position
+	private int[] pos; // position of each point in order
+	private byte[] cutDim; // kd-tree: cutting dimension at each position
+	private int[] live; // number of non-tree points in each subtree
+	private boolean[] inTree; // has the point joined the EMST?
+	private DoubleQuakeHeap heap; // candidate edges, one per non-tree point
+	private int[] handle; // heap handle of each non-tree point (-1 if none)
+	private int[] connector; // closest tree point of each non-tree point in the heap
+
+	// -----------------------------------------------------------------
+	// Local utilities
+	// -----------------------------------------------------------------
+
+	/**
+	 * Squared chord length between points i and j.
+	 */
+	double chordSq(int i, int j) {
+		double dx = v[0][i] - v[0][j], dy = v[1][i] - v[1][j], dz = v[2][i] - v[2][j];
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	/**
+	 * Build an implicit kd-tree on positions lo..hi-1. The node of the range is
+	 * its middle position mid, the left subtree is lo..mid-1 and the right one
+	 * mid+1..hi-1. The cut is along the dimension of greatest spread; points
+	 * left of mid have coordinates at most mid's, those right of it at least.
+	 */
+	void build(int lo, int hi) {
+		if (lo >= hi)
+			return;
+		int cd = 0;
+		double spread = -1;
+		for (int d = 0; d < 3; d++) {
+			double min = v[d][order[lo]], max = min;
+			for (int i = lo + 1; i < hi; i++) {
+				min = Math.min(min, v[d][order[i]]);
+				max = Math.max(max, v[d][order[i]]);
+			}
+			if (max - min > spread) {
+				spread = max - min;
+				cd = d;
+			}
+		}
+		int mid = (lo + hi) >>> 1;
+		select(lo, hi, mid, v[cd]);
+		cutDim[mid] = (byte) cd;
+		live[mid] = hi - lo;
+		build(lo, mid);
+		build(mid + 1, hi);
+	}
+
+	/**
+	 * Rearrange order[lo..hi-1] so that position k holds the k-th smallest
+	 * coordinate c, with no larger coordinates before it and no smaller ones
+	 * after it.
+	 */
+	void select(int lo, int hi, int k, double[] c) {
+		while (hi - lo > 1) {
+			double p = c[order[(lo + hi) >>> 1]]; // pivot value
+			int lt = lo, i = lo, gt = hi; // [lo,lt) < p, [lt,i) == p, [gt,hi) > p
+			while (i < gt) {
+				double x = c[order[i]];
+				if (x < p) {
+					swap(lt++, i++);
+				} else if (x > p) {
+					swap(i, --gt);
+				} else {
+					i++;
+				}
+			}
+			if (k < lt) {
+				hi = lt;
+			} else if (k >= gt) {
+				lo = gt;
+			} else {
+				return;
+			}
+		}
+	}
+
+	void swap(int i, int j) {
+		int t = order[i];
+		order[i] = order[j];
+		order[j] = t;
+	}
+
+	/**
+	 * Offer the edge from tree point q to its nearest non-tree point nn.
+	 */
+	void offer(int q, int nn) throws Exception {
+		double d = chordSq(q, nn);
+		if (handle[nn] < 0) {
+			handle[nn] = heap.insert(d, nn);
+			connector[nn] = q;
+		} else if (d < chordSq(connector[nn], nn)) { // a cheaper connection
+			heap.decreaseKey(handle[nn], d);
+			connector[nn] = q;
+		}
+	}
+
+	/**
+	 * Take point p out of the kd-tree by walking down to its position and
+	 * decrementing the live counts along the way.
+	 */
+	void remove(int p) {
+		int target = pos[p], lo = 0, hi = order.length;
+		while (true) {
+			int mid = (lo + hi) >>> 1;
+			live[mid] -= 1;
+			if (mid == target) {
+				return;
+			} else if (target < mid) {
+				hi = mid;
+			} else {
+				lo = mid + 1;
+			}
+		}
+	}
+
+	/**
+	 * Nearest non-tree point to point q in positions lo..hi-1, with q's offsets
+	 * from the subtree's cell and the caller's best (at squared distance
+	 * bestDist) as in MinimalKdTree.nearestNode. Returns a point index, or -1.
+	 */
+	int nearest(int q, int lo, int hi, double off0, double off1, double off2, int best, double bestDist) {
+		if (lo >= hi)
+			return best;
+		int mid = (lo + hi) >>> 1;
+		if (live[mid] == 0) // nothing left in this subtree
+			return best;
+		int p = order[mid];
+		if (!inTree[p]) {
+			double d = chordSq(q, p);
+			if (d < bestDist) {
+				best = p;
+				bestDist = d;
+			}
+		}
+		int cd = cutDim[mid];
+		double diff = v[cd][q] - v[cd][p]; // signed offset from the cut
+		int b = (diff < 0 ? nearest(q, lo, mid, off0, off1, off2, best, bestDist)
+				: nearest(q, mid + 1, hi, off0, off1, off2, best, bestDist));
+		if (b != best) {
+			best = b;
+			bestDist = chordSq(q, b);
+		}
+		if (cd == 0) {
+			off0 = diff;
+		} else if (cd == 1) {
+			off1 = diff;
+		} else {
+			off2 = diff;
+		}
+		if (off0 * off0 + off1 * off1 + off2 * off2 < bestDist) { // is far side viable?
+			best = (diff < 0 ? nearest(q, mid + 1, hi, off0, off1, off2, best, bestDist)
+					: nearest(q, lo, mid, off0, off1, off2, best, bestDist));
+		}
+		return best;
+	}
+
+	// -----------------------------------------------------------------
+	// Public members
+	// -----------------------------------------------------------------
+
+	/**
+	 * Creates an engine for points with coordinates (longitude, latitude) in
+	 * the given box, in degrees.
+	 */
+	public GeodesicEMST(Rectangle2D bbox) {
+		this.bbox = new Rectangle2D(bbox);
+	}
+
+	/**
+	 * The unit vector of a point (x = longitude, y = latitude, in degrees).
+	 */
+	public static double[] unitVector(LabeledPoint2D pt) {
+		double lon = Math.toRadians(pt.getX()), lat = Math.toRadians(pt.getY());
+		return new double[] { Math.cos(lat) * Math.cos(lon), Math.cos(lat) * Math.sin(lon), Math.sin(lat) };
+	}
+
+	/**
+	 * Squared chord length between the unit vectors of two points. This orders
+	 * pairs of points the same way as their great-circle distance.
+	 */
+	public static double chordSq(LabeledPoint2D pt1, LabeledPoint2D pt2) {
+		double[] u1 = unitVector(pt1), u2 = unitVector(pt2);
+		double dx = u1[0] - u2[0], dy = u1[1] - u2[1], dz = u1[2] - u2[2];
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	/**
+	 * Great-circle distance between two points, in radians of arc.
+	 */
+	public static double arcLength(LabeledPoint2D pt1, LabeledPoint2D pt2) {
+		return 2 * Math.asin(Math.min(1, Math.sqrt(chordSq(pt1, pt2)) / 2));
+	}
+
+	/**
+	 * Compute the edges of the geodesic EMST of the given points, growing the
+	 * tree from points.get(0). Edges are reported in the order they are added,
+	 * oriented away from points.get(0).
+	 */
+	public ArrayList<Pair<LPoint>> build(List<LPoint> points) throws Exception {
+		int n = points.size();
+		v = new double[3][n];
+		for (int i = 0; i < n; i++) {
+			LPoint pt = points.get(i);
+			if (!bbox.contains(pt.getPoint2D())) {
+				throw new Exception("Attempt to insert a point outside bounding box");
+			}
+			double[] u = unitVector(pt);
+			for (int d = 0; d < 3; d++)
+				v[d][i] = u[d];
+		}
+		order = new int[n];
+		for (int i = 0; i < n; i++)
+			order[i] = i;
+		cutDim = new byte[n];
+		live = new int[n];
+		build(0, n);
+		pos = new int[n];
+		for (int i = 0; i < n; i++)
+			pos[order[i]] = i;
+		inTree = new boolean[n];
+
+		ArrayList<Pair<LPoint>> result = new ArrayList<Pair<LPoint>>();
+		if (n == 0)
+			return result;
+		ArrayList<ArrayList<Integer>> dependents = new ArrayList<ArrayList<Integer>>(n);
+		for (int i = 0; i < n; i++)
+			dependents.add(new ArrayList<Integer>());
+		heap = new DoubleQuakeHeap(34 - Integer.numberOfLeadingZeros(n)); // levels for n entries
+		handle = new int[n];
+		Arrays.fill(handle, -1);
+		connector = new int[n];
+		ArrayList<Integer> searchers = new ArrayList<Integer>();
+		searchers.add(0);
+		inTree[0] = true;
+		remove(0);
+		while (true) {
+			for (int q : searchers) { // (re)connect the points whose neighbor left
+				int nn = nearest(q, 0, n, 0, 0, 0, -1, Double.POSITIVE_INFINITY);
+				if (nn >= 0) {
+					offer(q, nn);
+					dependents.get(nn).add(q);
+				}
+			}
+			if (heap.size() == 0)
+				break;
+			int to = heap.extractMin();
+			handle[to] = -1;
+			result.add(new Pair<LPoint>(points.get(connector[to]), points.get(to)));
+			inTree[to] = true;
+			remove(to);
+			searchers = dependents.get(to);
+			searchers.add(to);
+			dependents.set(to, null);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,241 @@
+package cmsc420_s22;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * A uniform grid over the bounding box, each cell holding a bucket of the
+ * points that fall in it. A nearest-neighbor search scans rings of cells
+ * around the query's cell until the nearest point found is closer than any
+ * unscanned cell. For roughly uniform points this takes expected O(1) time.
+ *
+ * The cells are sized for about CELL_LOAD points each. The grid is rebuilt
+ * with a new cell size when the number of points has grown or shrunk by a
+ * large factor since the last sizing, so the cost of rebuilding is O(1)
+ * amortized per operation. Deletion only removes the point from its bucket.
+ */
+
+public class GridIndex<LPoint extends LabeledPoint2D> implements SpatialIndex<LPoint> {
+
+	private static final int CELL_LOAD = 2; // target number of points per cell
+
+	// -----------------------------------------------------------------
+	// Private data
+	// -----------------------------------------------------------------
+
+	private Rectangle2D bbox; // the bounding box
+	private double lowX, lowY; // lower-left corner of the grid
+	private double cellW, cellH; // cell dimensions
+	private int nx, ny; // number of columns and rows
+	private ArrayList<ArrayList<LPoint>> cells; // bucket of cell (i, j) at j * nx + i
+	private int nPoints; // number of points
+
+	// -----------------------------------------------------------------
+	// Local utilities
+	// -----------------------------------------------------------------
+
+	/**
+	 * Lay out an empty grid sized for n points, with cells about as square as
+	 * the box allows.
+	 */
+	void resize(int n) {
+		int nCells = Math.max(1, n / CELL_LOAD);
+		double w = Math.max(bbox.getWidth(0), Double.MIN_NORMAL);
+		double h = Math.max(bbox.getWidth(1), Double.MIN_NORMAL);
+		nx = (int) Math.max(1, Math.min(nCells, Math.round(Math.sqrt(nCells * w / h))));
+		ny = Math.max(1, nCells / nx);
+		cellW = w / nx;
+		cellH = h / ny;
+		cells = new ArrayList<ArrayList<LPoint>>(nx * ny);
+		for (int i = 0; i < nx * ny; i++)
+			cells.add(new ArrayList<LPoint>(CELL_LOAD));
+	}
+
+	/**
+	 * Re-lay out the grid for the current number of points if it has drifted
+	 * too far from the sizing of the current grid.
+	 */
+	void regrid() {
+		int nCells = nx * ny;
+		if (nPoints > 4 * CELL_LOAD * nCells || (nCells > 1 && 16 * nPoints < CELL_LOAD * nCells)) {
+			ArrayList<LPoint> all = new ArrayList<LPoint>(nPoints);
+			for (ArrayList<LPoint> cell : cells)
+				all.addAll(cell);
+			resize(nPoints);
+			for (LPoint pt : all)
+				cellOf(pt.getX(), pt.getY()).add(pt);
+		}
+	}
+
+	int column(double x) {
+		return Math.max(0, Math.min(nx - 1, (int) ((x - lowX) / cellW)));
+	}
+
+	int row(double y) {
+		return Math.max(0, Math.min(ny - 1, (int) ((y - lowY) / cellH)));
+	}
+
+	/**
+	 * Does pt come before best in (x, y) order? This breaks ties between
+	 * equidistant nearest neighbors, as the kd-trees do.
+	 */
+	boolean precedes(LPoint pt, LPoint best) {
+		return best == null || pt.getX() < best.getX() || (pt.getX() == best.getX() && pt.getY() < best.getY());
+	}
+
+	ArrayList<LPoint> cellOf(double x, double y) {
+		return cells.get(row(y) * nx + column(x));
+	}
+
+	/**
+	 * Index of (x, y) in a bucket, or -1.
+	 */
+	int indexIn(ArrayList<LPoint> cell, double x, double y) {
+		for (int k = 0; k < cell.size(); k++) {
+			LPoint pt = cell.get(k);
+			if (pt.getX() == x && pt.getY() == y)
+				return k;
+		}
+		return -1;
+	}
+
+	// -----------------------------------------------------------------
+	// Public members
+	// -----------------------------------------------------------------
+
+	/**
+	 * Creates an empty index over the given box.
+	 */
+	public GridIndex(Rectangle2D bbox) {
+		this.bbox = new Rectangle2D(bbox);
+		lowX = bbox.getLow().getX();
+		lowY = bbox.getLow().getY();
+		clear();
+	}
+
+	/**
+	 * Number of points in the index.
+	 */
+	public int size() {
+		return nPoints;
+	}
+
+	/**
+	 * Find a point in the index.
+	 */
+	public LPoint find(Point2D pt) {
+		ArrayList<LPoint> cell = cellOf(pt.getX(), pt.getY());
+		int k = indexIn(cell, pt.getX(), pt.getY());
+		return (k < 0 ? null : cell.get(k));
+	}
+
+	/**
+	 * Insert a point.
+	 */
+	public void insert(LPoint pt) throws Exception {
+		if (!bbox.contains(pt.getPoint2D())) {
+			throw new Exception("Attempt to insert a point outside bounding box");
+		}
+		ArrayList<LPoint> cell = cellOf(pt.getX(), pt.getY());
+		if (indexIn(cell, pt.getX(), pt.getY()) >= 0) {
+			throw new Exception("Attempt to insert a duplicate point");
+		}
+		cell.add(pt);
+		nPoints += 1;
+		regrid();
+	}
+
+	/**
+	 * Delete a point. The last point of its bucket takes its place.
+	 */
+	public void delete(Point2D pt) throws Exception {
+		ArrayList<LPoint> cell = cellOf(pt.getX(), pt.getY());
+		int k = indexIn(cell, pt.getX(), pt.getY());
+		if (k < 0) {
+			throw new Exception("Attempt to delete a nonexistent point");
+		}
+		cell.set(k, cell.get(cell.size() - 1));
+		cell.remove(cell.size() - 1);
+		nPoints -= 1;
+		regrid();
+	}
+
+	/**
+	 * Replace the contents of the index by the given points, sizing the cells
+	 * for their number.
+	 */
+	public void bulkLoad(List<LPoint> pts) throws Exception {
+		HashSet<Point2D> seen = new HashSet<Point2D>();
+		for (LPoint pt : pts) {
+			if (!bbox.contains(pt.getPoint2D())) {
+				throw new Exception("Attempt to insert a point outside bounding box");
+			} else if (!seen.add(pt.getPoint2D())) {
+				throw new Exception("Attempt to insert a duplicate point");
+			}
+		}
+		resize(pts.size());
+		for (LPoint pt : pts)
+			cellOf(pt.getX(), pt.getY()).add(pt);
+		nPoints = pts.size();
+	}
+
+	/**
+	 * Find the point closest to q (null if the index is empty). Ring r holds
+	 * the cells at Chebyshev distance r from q's cell; once rings 0..r have
+	 * been scanned, every other point is at least as far as the nearest side
+	 * of that block of cells that is not on the border of the grid. Among
+	 * equidistant points the one first in (x, y) order is returned.
+	 */
+	public LPoint nearestNeighbor(Point2D q) {
+		if (nPoints == 0) {
+			return null;
+		}
+		double qx = q.getX(), qy = q.getY();
+		int ci = column(qx), cj = row(qy);
+		LPoint best = null;
+		double bestDist = Double.POSITIVE_INFINITY;
+		int maxRing = Math.max(Math.max(ci, nx - 1 - ci), Math.max(cj, ny - 1 - cj));
+		for (int r = 0; r <= maxRing; r++) {
+			int i0 = ci - r, i1 = ci + r, j0 = cj - r, j1 = cj + r;
+			for (int j = Math.max(j0, 0); j <= Math.min(j1, ny - 1); j++) {
+				int lo = Math.max(i0, 0), hi = Math.min(i1, nx - 1), step = 1;
+				if (j != j0 && j != j1) { // inner row: only its two end cells are in the ring
+					lo = (i0 >= 0 ? i0 : i1);
+					hi = (i1 < nx ? i1 : i0);
+					step = i1 - i0;
+				}
+				for (int i = lo; i <= hi; i += step) {
+					for (LPoint pt : cells.get(j * nx + i)) {
+						double dx = qx - pt.getX(), dy = qy - pt.getY();
+						double d = dx * dx + dy * dy;
+						if (d < bestDist || (d == bestDist && precedes(pt, best))) {
+							best = pt;
+							bestDist = d;
+						}
+					}
+				}
+			}
+			double gap = Double.POSITIVE_INFINITY; // distance to the unscanned cells
+			if (i0 > 0)
+				gap = Math.min(gap, qx - (lowX + i0 * cellW));
+			if (i1 < nx - 1)
+				gap = Math.min(gap, (lowX + (i1 + 1) * cellW) - qx);
+			if (j0 > 0)
+				gap = Math.min(gap, qy - (lowY + j0 * cellH));
+			if (j1 < ny - 1)
+				gap = Math.min(gap, (lowY + (j1 + 1) * cellH) - qy);
+			if (gap > 0 && gap * gap > bestDist) // farther cells cannot hold a tie
+				break;
+		}
+		return best;
+	}
+
+	/**
+	 * Remove all items, resulting in an empty index.
+	 */
+	public void clear() {
+		resize(0);
+		nPoints = 0;
+	}
+}
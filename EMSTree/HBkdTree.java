@@ -1,15 +1,361 @@
 package cmsc420_s22;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
 
-public class HBkdTree<LPoint extends LabeledPoint2D> {
+/**
+ * A height-balanced extended kd-tree. Points are stored in the external
+ * nodes, and each internal node splits its cell along the dimension of
+ * greater spread. Whenever the heights of the two subtrees of a node differ by
+ * more than maxHeightDifference, the subtree is rebuilt from scratch with
+ * median splits. This keeps the height logarithmic under any sequence of
+ * insertions and deletions.
+ *
+ * The rebuilds are not amortized. A height-balanced subtree can pair a full
+ * side with a sparse one, which (as in an AVL tree) may hold exponentially
+ * fewer points. One deletion from the sparse side can then unbalance the
+ * subtree and rebuild all of it, so a single update costs O(n log n) in the
+ * worst case. MinimalKdTree with lazy deletion, whose rebuilds are paid for
+ * by the deletions that caused them, is the choice when that matters.
+ */
 
-	public HBkdTree(int maxHeightDifference, Rectangle2D bbox) { /* ... */ }
-	public LPoint find(Point2D pt) { /* ... */ return null; }
-	public void insert(LPoint pt) throws Exception { /* ... */ }
-	public void delete(Point2D pt) throws Exception { /* ... */ }
-	public ArrayList<String> getPreorderList() { /* ... */ return null; }
-	public LPoint nearestNeighbor(Point2D center) { /* ... */ return null; }
-	public int size() { /* ... */ return 0; }
-	public void clear() { /* ... */ }
+public class HBkdTree<LPoint extends LabeledPoint2D> implements SpatialIndex<LPoint> {
+
+	// =================================================================
+	// Node types
+	// =================================================================
+
+	private abstract class Node {
+		abstract int height(); // height of this subtree (external = 0)
+
+		abstract LPoint find(Point2D pt); // find point in subtree
+
+		abstract Node insert(LPoint pt) throws Exception; // insert point
+
+		abstract Node delete(Point2D pt) throws Exception; // delete point
+
+		abstract void listPoints(ArrayList<LPoint> list); // collect the points
+
+		abstract LPoint nearestNeighbor(Point2D q, Rectangle2D cell, LPoint best); // NN search
+
+		abstract void getPreorderList(ArrayList<String> list); // preorder listing
+	}
+
+	private class InternalNode extends Node {
+		int cutDim; // cutting dimension (0 == x, 1 == y)
+		double cutVal; // cutting value (points with smaller coordinate go left)
+		Node left, right; // children
+		int height; // height of this subtree
+
+		InternalNode(int cutDim, double cutVal, Node left, Node right) {
+			this.cutDim = cutDim;
+			this.cutVal = cutVal;
+			this.left = left;
+			this.right = right;
+			updateHeight();
+		}
+
+		boolean onLeft(Point2D pt) { // in the left subtree?
+			return pt.get(cutDim) < cutVal;
+		}
+
+		void updateHeight() {
+			height = 1 + Math.max(left.height(), right.height());
+		}
+
+		/**
+		 * Recompute the height after a change below, and rebuild this subtree if
+		 * it has become too unbalanced (however few updates it has seen since it
+		 * was built; see the class comment).
+		 */
+		Node rebalance() {
+			updateHeight();
+			if (Math.abs(left.height() - right.height()) > maxHeightDifference) {
+				ArrayList<LPoint> list = new ArrayList<LPoint>();
+				listPoints(list);
+				return build(list);
+			}
+			return this;
+		}
+
+		int height() {
+			return height;
+		}
+
+		LPoint find(Point2D pt) {
+			return (onLeft(pt) ? left.find(pt) : right.find(pt));
+		}
+
+		Node insert(LPoint pt) throws Exception {
+			if (onLeft(pt.getPoint2D())) {
+				left = left.insert(pt);
+			} else {
+				right = right.insert(pt);
+			}
+			return rebalance();
+		}
+
+		Node delete(Point2D pt) throws Exception {
+			if (onLeft(pt)) {
+				left = left.delete(pt);
+				if (left == null) // left side is now empty
+					return right;
+			} else {
+				right = right.delete(pt);
+				if (right == null) // right side is now empty
+					return left;
+			}
+			return rebalance();
+		}
+
+		void listPoints(ArrayList<LPoint> list) {
+			left.listPoints(list);
+			right.listPoints(list);
+		}
+
+		LPoint nearestNeighbor(Point2D q, Rectangle2D cell, LPoint best) {
+			Rectangle2D leftCell = cell.leftPart(cutDim, cutVal);
+			Rectangle2D rightCell = cell.rightPart(cutDim, cutVal);
+			if (q.get(cutDim) < cutVal) {
+				best = left.nearestNeighbor(q, leftCell, best);
+				if (rightCell.distanceSq(q) <= q.distanceSq(getPoint(best))) { // is right viable?
+					best = right.nearestNeighbor(q, rightCell, best);
+				}
+			} else { // q is closer to right
+				best = right.nearestNeighbor(q, rightCell, best);
+				if (leftCell.distanceSq(q) <= q.distanceSq(getPoint(best))) { // is left viable?
+					best = left.nearestNeighbor(q, leftCell, best);
+				}
+			}
+			return best;
+		}
+
+		void getPreorderList(ArrayList<String> list) {
+			String cut = (cutDim == 0 ? "x" : "y");
+			list.add("(" + cut + "=" + cutVal + ") ht=" + height);
+			left.getPreorderList(list);
+			right.getPreorderList(list);
+		}
+	}
+
+	private class ExternalNode extends Node {
+		LPoint point; // the associated point
+
+		ExternalNode(LPoint point) {
+			this.point = point;
+		}
+
+		int height() {
+			return 0;
+		}
+
+		LPoint find(Point2D pt) {
+			return (point.getPoint2D().equals(pt) ? point : null);
+		}
+
+		/**
+		 * Split this leaf into an internal node separating the old and new points
+		 * along the dimension where they differ most.
+		 */
+		Node insert(LPoint pt) throws Exception {
+			if (pt.getPoint2D().equals(point.getPoint2D())) {
+				throw new Exception("Attempt to insert a duplicate point");
+			}
+			ArrayList<LPoint> list = new ArrayList<LPoint>();
+			list.add(point);
+			list.add(pt);
+			return build(list);
+		}
+
+		Node delete(Point2D pt) throws Exception {
+			if (!pt.equals(point.getPoint2D())) {
+				throw new Exception("Attempt to delete a nonexistent point");
+			}
+			return null;
+		}
+
+		void listPoints(ArrayList<LPoint> list) {
+			list.add(point);
+		}
+
+		LPoint nearestNeighbor(Point2D q, Rectangle2D cell, LPoint best) {
+			double d = q.distanceSq(point.getPoint2D()), bestDist = q.distanceSq(getPoint(best));
+			if (d < bestDist || (d == bestDist && precedes(point, best)))
+				best = point;
+			return best;
+		}
+
+		void getPreorderList(ArrayList<String> list) {
+			list.add("[" + point.toString() + "]");
+		}
+	}
+
+	// -----------------------------------------------------------------
+	// Local utilities
+	// -----------------------------------------------------------------
+
+	/**
+	 * The coordinates of a possibly null point.
+	 */
+	Point2D getPoint(LPoint pt) {
+		return (pt == null ? null : pt.getPoint2D());
+	}
+
+	/**
+	 * Does pt come before best in (x, y) order? This breaks ties between
+	 * equidistant nearest neighbors, so that the answer does not depend on the
+	 * shape of the tree.
+	 */
+	boolean precedes(LPoint pt, LPoint best) {
+		return pt.getX() < best.getX() || (pt.getX() == best.getX() && pt.getY() < best.getY());
+	}
+
+	/**
+	 * Build a balanced subtree holding the given (distinct) points. The cutting
+	 * dimension is the one of greater spread, and the cut falls between the two
+	 * distinct coordinate values closest to the median.
+	 */
+	Node build(List<LPoint> pts) {
+		if (pts.isEmpty()) {
+			return null;
+		} else if (pts.size() == 1) {
+			return new ExternalNode(pts.get(0));
+		}
+		Rectangle2D box = new Rectangle2D();
+		for (LPoint pt : pts)
+			box.expand(pt.getPoint2D());
+		int cd = (box.getWidth(0) >= box.getWidth(1) ? 0 : 1);
+		Collections.sort(pts, Comparator.comparingDouble((LPoint pt) -> pt.get(cd)));
+		int n = pts.size();
+		int k = n / 2; // split index: pts[0..k-1] go left, pts[k..n-1] go right
+		for (int d = 0; d < n; d++) { // closest index to n/2 where the coordinate changes
+			if (k - d > 0 && pts.get(k - d - 1).get(cd) < pts.get(k - d).get(cd)) {
+				k = k - d;
+				break;
+			}
+			if (k + d < n && pts.get(k + d - 1).get(cd) < pts.get(k + d).get(cd)) {
+				k = k + d;
+				break;
+			}
+		}
+		double cutVal = pts.get(k).get(cd);
+		Node left = build(new ArrayList<LPoint>(pts.subList(0, k)));
+		Node right = build(new ArrayList<LPoint>(pts.subList(k, n)));
+		return new InternalNode(cd, cutVal, left, right);
+	}
+
+	// -----------------------------------------------------------------
+	// Private data
+	// -----------------------------------------------------------------
+
+	private Node root; // root of the tree (null if empty)
+	private int nPoints; // number of points in the tree
+	private int maxHeightDifference; // max allowed height difference of siblings
+	private Rectangle2D bbox; // the bounding box
+
+	// -----------------------------------------------------------------
+	// Public members
+	// -----------------------------------------------------------------
+
+	/**
+	 * Creates an empty tree.
+	 */
+	public HBkdTree(int maxHeightDifference, Rectangle2D bbox) {
+		root = null;
+		nPoints = 0;
+		this.maxHeightDifference = maxHeightDifference;
+		this.bbox = new Rectangle2D(bbox);
+	}
+
+	/**
+	 * Find a point in the tree.
+	 */
+	public LPoint find(Point2D pt) {
+		return (root == null ? null : root.find(pt));
+	}
+
+	/**
+	 * Insert a point.
+	 */
+	public void insert(LPoint pt) throws Exception {
+		if (!bbox.contains(pt.getPoint2D())) {
+			throw new Exception("Attempt to insert a point outside bounding box");
+		} else if (root == null) {
+			root = new ExternalNode(pt);
+		} else {
+			root = root.insert(pt);
+		}
+		nPoints += 1; // one more point
+	}
+
+	/**
+	 * Delete a point.
+	 */
+	public void delete(Point2D pt) throws Exception {
+		if (root == null) {
+			throw new Exception("Attempt to delete a nonexistent point");
+		}
+		root = root.delete(pt);
+		nPoints -= 1; // one fewer point
+	}
+
+	/**
+	 * Replace the contents of the tree by the given points, building a balanced
+	 * tree.
+	 */
+	public void bulkLoad(List<LPoint> pts) throws Exception {
+		HashSet<Point2D> seen = new HashSet<Point2D>();
+		for (LPoint pt : pts) {
+			if (!bbox.contains(pt.getPoint2D())) {
+				throw new Exception("Attempt to insert a point outside bounding box");
+			} else if (!seen.add(pt.getPoint2D())) {
+				throw new Exception("Attempt to insert a duplicate point");
+			}
+		}
+		root = build(new ArrayList<LPoint>(pts));
+		nPoints = pts.size();
+	}
+
+	/**
+	 * Get a list of the nodes in preorder. Internal nodes are listed as
+	 * "(x=cutVal) ht=height" and external nodes as "[point]".
+	 */
+	public ArrayList<String> getPreorderList() {
+		ArrayList<String> list = new ArrayList<String>();
+		if (root != null)
+			root.getPreorderList(list);
+		return list;
+	}
+
+	/**
+	 * Find the point closest to center (null if the tree is empty).
+	 */
+	public LPoint nearestNeighbor(Point2D center) {
+		return (root == null ? null : root.nearestNeighbor(center, bbox, null));
+	}
+
+	/**
+	 * Height of the tree (-1 if empty).
+	 */
+	public int height() {
+		return (root == null ? -1 : root.height());
+	}
+
+	/**
+	 * Number of points in the tree.
+	 */
+	public int size() {
+		return nPoints;
+	}
+
+	/**
+	 * Remove all items, resulting in an empty tree.
+	 */
+	public void clear() {
+		root = null;
+		nPoints = 0;
+	}
 }
@@ -0,0 +1,369 @@
+package cmsc420_s22;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * A kd-tree over d-dimensional points, for any d >= 1. Like MinimalKdTree, it
+ * stores a point at every node and sends points with a smaller coordinate
+ * along the cutting dimension to the left. Since cycling through many
+ * dimensions wastes levels on axes along which the points hardly vary, a bulk
+ * load cuts each subtree along the dimension of greatest spread. Inserted
+ * leaves take the dimension after their parent's.
+ */
+
+public class KdTreeD<LPoint extends LabeledPointD> {
+
+	// =================================================================
+	// KDNode
+	// =================================================================
+
+	private class KDNode {
+		LPoint point; // the associated point
+		double[] coord; // the point's coordinates (cached for searching)
+		int cutDim; // cutting dimension
+		KDNode left, right; // children
+
+		KDNode(LPoint point, int cutDim) { // leaf constructor
+			setPoint(point);
+			this.cutDim = cutDim;
+			left = right = null;
+		}
+
+		void setPoint(LPoint point) { // set the point and its cached coordinates
+			this.point = point;
+			coord = new double[dim];
+			for (int i = 0; i < dim; i++)
+				coord[i] = point.get(i);
+		}
+
+		boolean onLeft(PointD pt) { // in the left subtree?
+			return pt.get(cutDim) < coord[cutDim];
+		}
+	}
+
+	// -----------------------------------------------------------------
+	// Recursive helpers for main functions
+	// -----------------------------------------------------------------
+
+	LPoint find(KDNode p, PointD pt) {
+		if (p == null) {
+			return null;
+		} else if (p.point.getPointD().equals(pt)) {
+			return p.point;
+		} else if (p.onLeft(pt)) {
+			return find(p.left, pt);
+		} else {
+			return find(p.right, pt);
+		}
+	}
+
+	KDNode insert(LPoint pt, KDNode p, int cd) throws Exception {
+		if (p == null) {
+			return new KDNode(pt, cd);
+		} else if (pt.getPointD().equals(p.point.getPointD())) {
+			throw new Exception("Attempt to insert a duplicate point");
+		} else if (p.onLeft(pt.getPointD())) {
+			p.left = insert(pt, p.left, (p.cutDim + 1) % dim);
+		} else {
+			p.right = insert(pt, p.right, (p.cutDim + 1) % dim);
+		}
+		return p;
+	}
+
+	/**
+	 * Build a balanced subtree from pts[lo..hi-1], cutting at the median along
+	 * the dimension of greatest spread. Points with the same coordinate go
+	 * right, as in insert.
+	 */
+	KDNode build(LPoint[] pts, int lo, int hi) {
+		if (lo >= hi) {
+			return null;
+		}
+		int cd = 0;
+		double spread = -1;
+		for (int i = 0; i < dim; i++) {
+			double min = pts[lo].get(i), max = min;
+			for (int j = lo + 1; j < hi; j++) {
+				double c = pts[j].get(i);
+				if (c < min)
+					min = c;
+				if (c > max)
+					max = c;
+			}
+			if (max - min > spread) {
+				spread = max - min;
+				cd = i;
+			}
+		}
+		int mid = select(pts, lo, hi, (lo + hi) / 2, cd);
+		KDNode p = new KDNode(pts[mid], cd);
+		p.left = build(pts, lo, mid);
+		p.right = build(pts, mid + 1, hi);
+		return p;
+	}
+
+	/**
+	 * Three-way quickselect along cd (see MinimalKdTree.select). Returns the
+	 * first index holding the k-th smallest coordinate.
+	 */
+	int select(LPoint[] pts, int lo, int hi, int k, int cd) {
+		while (true) {
+			double v = pts[(lo + hi) >>> 1].get(cd); // pivot value
+			int lt = lo, i = lo, gt = hi; // [lo,lt) < v, [lt,i) == v, [gt,hi) > v
+			while (i < gt) {
+				double c = pts[i].get(cd);
+				if (c < v) {
+					swap(pts, lt++, i++);
+				} else if (c > v) {
+					swap(pts, i, --gt);
+				} else {
+					i++;
+				}
+			}
+			if (k < lt) {
+				hi = lt;
+			} else if (k >= gt) {
+				lo = gt;
+			} else {
+				return lt;
+			}
+		}
+	}
+
+	void swap(LPoint[] pts, int i, int j) {
+		LPoint t = pts[i];
+		pts[i] = pts[j];
+		pts[j] = t;
+	}
+
+	/**
+	 * Delete a point from node's subtree (as in MinimalKdTree.delete).
+	 */
+	KDNode delete(PointD pt, KDNode p) throws Exception {
+		if (p == null) { // fell out of tree?
+			throw new Exception("Attempt to delete a nonexistent point");
+		} else if (pt.equals(p.point.getPointD())) { // found it
+			if (p.right != null) { // can replace from right
+				p.setPoint(findMin(p.right, p.cutDim));
+				p.right = delete(p.point.getPointD(), p.right);
+			} else if (p.left != null) { // can replace from left
+				p.setPoint(findMin(p.left, p.cutDim));
+				p.right = delete(p.point.getPointD(), p.left); // delete left but move to right
+				p.left = null;
+			} else { // deleted point in leaf
+				p = null;
+			}
+		} else if (p.onLeft(pt)) {
+			p.left = delete(pt, p.left);
+		} else {
+			p.right = delete(pt, p.right);
+		}
+		return p;
+	}
+
+	/**
+	 * Find min point in subtree along coordinate i.
+	 */
+	LPoint findMin(KDNode p, int i) {
+		if (p == null) {
+			return null;
+		} else if (p.cutDim == i) { // cutting dimension matches i?
+			return (p.left == null ? p.point : findMin(p.left, i));
+		} else { // check both sides and this point as well
+			return min(i, p.point, min(i, findMin(p.left, i), findMin(p.right, i)));
+		}
+	}
+
+	LPoint min(int i, LPoint pt1, LPoint pt2) {
+		if (pt1 == null) {
+			return pt2;
+		} else if (pt2 == null || pt1.get(i) < pt2.get(i)) {
+			return pt1;
+		} else {
+			return pt2;
+		}
+	}
+
+	/**
+	 * Nearest-neighbor search as in MinimalKdTree.nearestNode. off holds q's
+	 * offset from p's cell along each axis and offSq the sum of their squares;
+	 * off is restored before returning. Ties go to the point first in
+	 * lexicographic order of the coordinates.
+	 */
+	KDNode nearestNode(double[] q, KDNode p, double[] off, double offSq, KDNode best, double bestDist) {
+		if (p == null) {
+			return best;
+		}
+		double d = distanceSq(q, p);
+		if (d < bestDist || (d == bestDist && precedes(p, best))) {
+			best = p;
+			bestDist = d;
+		}
+		int cd = p.cutDim;
+		double diff = q[cd] - p.coord[cd]; // signed offset from the cut
+		KDNode b = nearestNode(q, (diff < 0 ? p.left : p.right), off, offSq, best, bestDist);
+		if (b != best) {
+			best = b;
+			bestDist = distanceSq(q, b);
+		}
+		double old = off[cd];
+		double farSq = offSq - old * old + diff * diff; // the far cell is |diff| away along cd
+		if (farSq <= bestDist) { // is far side viable? (it may hold a tie)
+			off[cd] = diff;
+			best = nearestNode(q, (diff < 0 ? p.right : p.left), off, farSq, best, bestDist);
+			off[cd] = old;
+		}
+		return best;
+	}
+
+	/**
+	 * Does p's point come before best's in lexicographic order? This breaks
+	 * ties between equidistant nearest neighbors.
+	 */
+	boolean precedes(KDNode p, KDNode best) {
+		if (best == null)
+			return true;
+		for (int i = 0; i < dim; i++) {
+			if (p.coord[i] != best.coord[i])
+				return p.coord[i] < best.coord[i];
+		}
+		return false;
+	}
+
+	double distanceSq(double[] q, KDNode p) {
+		double sum = 0;
+		for (int i = 0; i < dim; i++) {
+			double diff = q[i] - p.coord[i];
+			sum += diff * diff;
+		}
+		return sum;
+	}
+
+	void listPoints(KDNode p, ArrayList<LPoint> list) {
+		if (p != null) {
+			list.add(p.point);
+			listPoints(p.left, list);
+			listPoints(p.right, list);
+		}
+	}
+
+	// -----------------------------------------------------------------
+	// Private data
+	// -----------------------------------------------------------------
+
+	private KDNode root; // root of the tree
+	private int nPoints; // number of points in the tree
+	private int dim; // dimension of the points
+	private RectangleD bbox; // the bounding box
+
+	// -----------------------------------------------------------------
+	// Public members
+	// -----------------------------------------------------------------
+
+	/**
+	 * Creates an empty tree for points in the given box. The dimension of the
+	 * tree is that of the box.
+	 */
+	public KdTreeD(RectangleD bbox) {
+		root = null;
+		nPoints = 0;
+		dim = bbox.getDimension();
+		this.bbox = new RectangleD(bbox);
+	}
+
+	/**
+	 * Dimension of the points.
+	 */
+	public int getDimension() {
+		return dim;
+	}
+
+	/**
+	 * Number of points in the tree.
+	 */
+	public int size() {
+		return nPoints;
+	}
+
+	/**
+	 * Find a point in the tree.
+	 */
+	public LPoint find(PointD pt) {
+		return find(root, pt);
+	}
+
+	/**
+	 * Insert a point.
+	 */
+	public void insert(LPoint pt) throws Exception {
+		if (!bbox.contains(pt.getPointD())) {
+			throw new Exception("Attempt to insert a point outside bounding box");
+		}
+		root = insert(pt, root, 0);
+		nPoints += 1;
+	}
+
+	/**
+	 * Delete a point.
+	 */
+	public void delete(PointD pt) throws Exception {
+		root = delete(pt, root);
+		nPoints -= 1;
+	}
+
+	/**
+	 * Replace the contents of the tree by the given points, building a balanced
+	 * tree in O(n log n) time.
+	 */
+	public void bulkLoad(List<LPoint> pts) throws Exception {
+		@SuppressWarnings("unchecked")
+		LPoint[] array = (LPoint[]) new LabeledPointD[pts.size()];
+		HashSet<PointD> seen = new HashSet<PointD>();
+		for (int i = 0; i < array.length; i++) {
+			LPoint pt = pts.get(i);
+			if (!bbox.contains(pt.getPointD())) {
+				throw new Exception("Attempt to insert a point outside bounding box");
+			} else if (!seen.add(pt.getPointD())) {
+				throw new Exception("Attempt to insert a duplicate point");
+			}
+			array[i] = pt;
+		}
+		root = build(array, 0, array.length);
+		nPoints = array.length;
+	}
+
+	/**
+	 * Find the point closest to q (null if the tree is empty).
+	 */
+	public LPoint nearestNeighbor(PointD q) {
+		double[] qc = new double[dim];
+		double[] off = new double[dim];
+		double offSq = 0;
+		for (int i = 0; i < dim; i++) {
+			qc[i] = q.get(i);
+			off[i] = bbox.offset(i, qc[i]);
+			offSq += off[i] * off[i];
+		}
+		KDNode best = nearestNode(qc, root, off, offSq, null, Double.POSITIVE_INFINITY);
+		return (best == null ? null : best.point);
+	}
+
+	/**
+	 * List the points in preorder.
+	 */
+	public ArrayList<LPoint> listPoints() {
+		ArrayList<LPoint> list = new ArrayList<LPoint>();
+		listPoints(root, list);
+		return list;
+	}
+
+	/**
+	 * Remove all items, resulting in an empty tree.
+	 */
+	public void clear() {
+		root = null;
+		nPoints = 0;
+	}
+}
@@ -0,0 +1,16 @@
+package cmsc420_s22;
+
+/**
+ * A d-dimensional point with a string label (see LabeledPoint2D).
+ */
+public interface LabeledPointD {
+	public int getDimension(); // get the point's dimension
+
+	public double get(int i); // get point's i-th coordinate
+
+	public PointD getPointD(); // get the point itself
+
+	public String getLabel(); // get the label
+
+	public boolean equals(Object o); // test for equality
+}
@@ -0,0 +1,28 @@
+package cmsc420_s22;
+
+/**
+ * A min-priority queue of key-value pairs whose entries can be located after
+ * insertion, so that their keys can be decreased. EMSTree runs Prim's
+ * algorithm on any implementation (QuakeHeap, BinaryHeap, PairingHeap).
+ */
+public interface MinHeap<Key extends Comparable<Key>, Value> {
+
+	/**
+	 * A reference to an inserted entry, valid until the entry is extracted or
+	 * the heap is cleared. It may only be passed to the heap that created it.
+	 */
+	public interface Locator {
+	}
+
+	public Locator insert(Key x, Value v); // insert a new entry
+
+	public Key getMinKey() throws Exception; // smallest key (the heap must not be empty)
+
+	public Value extractMin() throws Exception; // remove an entry of smallest key
+
+	public void decreaseKey(Locator r, Key newKey) throws Exception; // lower an entry's key
+
+	public int size(); // number of entries
+
+	public void clear(); // remove all entries
+}
@@ -1,11 +1,22 @@
 package cmsc420_s22;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.ToIntFunction;
+
 /**
  * A minimal kd-tree. This is just a plain kd-tree. If you add a function for
  * nearest-neighbor searching, it can be used for Programming Assignment 3.
  */
 
-public class MinimalKdTree<LPoint extends LabeledPoint2D> {
+public class MinimalKdTree<LPoint extends LabeledPoint2D> implements SpatialIndex<LPoint> {
 
 	// =================================================================
 	// KDNode
@@ -14,13 +25,38 @@ public class MinimalKdTree<LPoint extends LabeledPoint2D> {
 	private class KDNode {
 
 		private LPoint point; // the associated point
+		private double x, y; // the point's coordinates (cached for searching)
 		private int cutDim; // cutting dimension (0 == x, 1 == y)
 		private KDNode left, right; // children
+		private int comp; // component of this node's point (Boruvka only)
+		private int subtreeComp; // component shared by the whole subtree, or -1
+		private boolean dead; // lazily deleted (tombstone)?
+		private int nNodes; // number of nodes in this subtree (dead or alive)
+		private int nDead; // number of dead nodes in this subtree
 
 		public KDNode(LPoint point, int cutDim) { // leaf constructor
-			this.point = point;
+			setPoint(point);
 			this.cutDim = cutDim;
 			left = right = null;
+			comp = subtreeComp = -1;
+			dead = false;
+			nNodes = 1;
+			nDead = 0;
+		}
+
+		void updateCounts() { // recompute the counts from the children
+			nNodes = 1 + nodeCount(left) + nodeCount(right);
+			nDead = (dead ? 1 : 0) + deadCount(left) + deadCount(right);
+		}
+
+		void setPoint(LPoint point) { // set the point and its cached coordinates
+			this.point = point;
+			x = point.getX();
+			y = point.getY();
+		}
+
+		double cutVal() { // the point's coordinate along the cutting dimension
+			return (cutDim == 0 ? x : y);
 		}
 
 		boolean onLeft(LPoint pt) { // in the left subtree? (for Labeled points)
@@ -37,6 +73,54 @@ public class MinimalKdTree<LPoint extends LabeledPoint2D> {
 		}
 	}
 
+	// =================================================================
+	// BatchTask - answers a range of a batch of nearest-neighbor queries
+	// =================================================================
+
+	private class BatchTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final LabeledPoint2D[] queries; // the queries, in input order
+		private final long[] order; // (Hilbert key, query index), sorted
+		private final Object[] answers; // answers, in input order
+		private final int lo, hi; // range of order to process [lo, hi)
+
+		BatchTask(LabeledPoint2D[] queries, long[] order, Object[] answers, int lo, int hi) {
+			this.queries = queries;
+			this.order = order;
+			this.answers = answers;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		/**
+		 * Consecutive queries along the curve are close to each other, so the
+		 * previous answer is a good initial bound for the next search. Ties are
+		 * broken by coordinate order whatever the initial bound, so the answers
+		 * are those of nearestNeighbor.
+		 */
+		protected void compute() {
+			if (hi - lo > BATCH_GRAIN) {
+				int mid = (lo + hi) >>> 1;
+				invokeAll(new BatchTask(queries, order, answers, lo, mid),
+						new BatchTask(queries, order, answers, mid, hi));
+				return;
+			}
+			KDNode prev = null;
+			for (int j = lo; j < hi; j++) {
+				int i = (int) order[j]; // low bits hold the query index
+				double qx = queries[i].getX(), qy = queries[i].getY();
+				KDNode best = nearestNode(qx, qy, root, offset(qx, bbox.low.getX(), bbox.high.getX()),
+						offset(qy, bbox.low.getY(), bbox.high.getY()), prev,
+						(prev == null ? Double.POSITIVE_INFINITY : distanceSq(qx, qy, prev)));
+				answers[i] = (best == null ? null : best.point);
+				prev = best;
+			}
+		}
+	}
+
+	private static final int BATCH_GRAIN = 1024; // max queries answered by one task
+	private static final int NO_COMP = -2; // component label of an empty subtree
+
 	// -----------------------------------------------------------------
 	// Recursive helpers for main functions
 	// -----------------------------------------------------------------
@@ -48,7 +132,7 @@ public class MinimalKdTree<LPoint extends LabeledPoint2D> {
 		if (p == null) {
 			return null;
 		} else if (p.point.getPoint2D().equals(pt)) {
-			return p.point;
+			return (p.dead ? null : p.point);
 		} else if (p.onLeft(pt)) {
 			return find(p.left, pt);
 		} else {
@@ -64,12 +148,16 @@ public class MinimalKdTree<LPoint extends LabeledPoint2D> {
 		if (p == null) {
 			return new KDNode(pt, cd);
 		} else if (pt.getPoint2D().equals(p.point.getPoint2D())/* &&pt.getLabel()==p.point.getLabel() */) {
-			throw new Exception("Attempt to insert a duplicate point");
+			if (!p.dead)
+				throw new Exception("Attempt to insert a duplicate point");
+			p.setPoint(pt); // revive the tombstone
+			p.dead = false;
 		} else if (p.onLeft(pt)) { // insert on appropriate side
 			p.left = insert(pt, p.left, 1 - cd);
 		} else {
 			p.right = insert(pt, p.right, 1 - cd);
 		}
+		p.updateCounts();
 		return p;
 	}
 
@@ -78,14 +166,79 @@ public class MinimalKdTree<LPoint extends LabeledPoint2D> {
 			return new KDNode(pt, cd);
 		} else if (pt.getPoint2D().equals(p.point.getPoint2D())/* &&pt.getLabel()==p.point.getLabel() */) {
 			// throw new Exception("Attempt to insert a duplicate point");
+			if (p.dead) { // revive the tombstone
+				p.setPoint(pt);
+				p.dead = false;
+			}
 		} else if (p.onLeft(pt)) { // insert on appropriate side
 			p.left = insert_adding(pt, p.left, 1 - cd);
 		} else {
 			p.right = insert_adding(pt, p.right, 1 - cd);
 		}
+		p.updateCounts();
 		return p;
 	}
 
+	/**
+	 * Build a balanced subtree from pts[lo..hi-1]. The splitting point is a
+	 * median along cd. Points with the same coordinate go right, as in insert.
+	 */
+	KDNode build(LPoint[] pts, int lo, int hi, int cd) {
+		if (lo >= hi) {
+			return null;
+		}
+		int mid = select(pts, lo, hi, (lo + hi) / 2, cd);
+		KDNode p = new KDNode(pts[mid], cd);
+		p.left = build(pts, lo, mid, 1 - cd);
+		p.right = build(pts, mid + 1, hi, 1 - cd);
+		p.updateCounts();
+		return p;
+	}
+
+	/**
+	 * Rearrange pts[lo..hi-1] around the k-th smallest coordinate along cd (three
+	 * way quickselect). Returns the first index holding that coordinate; all
+	 * points before it are strictly smaller and all after it are at least as
+	 * large. Among the points holding that coordinate, the one with the
+	 * smallest other coordinate is placed there, so that the splitting point
+	 * does not depend on the order of pts.
+	 */
+	int select(LPoint[] pts, int lo, int hi, int k, int cd) {
+		while (true) {
+			double v = pts[(lo + hi) >>> 1].get(cd); // pivot value
+			int lt = lo, i = lo, gt = hi; // [lo,lt) < v, [lt,i) == v, [gt,hi) > v
+			while (i < gt) {
+				double c = pts[i].get(cd);
+				if (c < v) {
+					swap(pts, lt++, i++);
+				} else if (c > v) {
+					swap(pts, i, --gt);
+				} else {
+					i++;
+				}
+			}
+			if (k < lt) {
+				hi = lt;
+			} else if (k >= gt) {
+				lo = gt;
+			} else {
+				int m = lt;
+				for (int j = lt + 1; j < gt; j++) {
+					if (pts[j].get(1 - cd) < pts[m].get(1 - cd))
+						m = j;
+				}
+				swap(pts, lt, m);
+				return lt;
+			}
+		}
+	}
+
+	void swap(LPoint[] pts, int i, int j) {
+		LPoint t = pts[i];
+		pts[i] = pts[j];
+		pts[j] = t;
+	}
+
 	/**
 	 * Delete a point from node's subtree.
 	 */
@@ -94,10 +247,10 @@ public class MinimalKdTree<LPoint extends LabeledPoint2D> {
 			throw new Exception("Attempt to delete a nonexistent point");
 		} else if (pt.equals(p.point.getPoint2D())) { // found it
 			if (p.right != null) { // can replace from right
-				p.point = findMin(p.right, p.cutDim); // find and copy replacement
+				p.setPoint(findMin(p.right, p.cutDim)); // find and copy replacement
 				p.right = delete(p.point.getPoint2D(), p.right); // delete from right
 			} else if (p.left != null) { // can replace from left
-				p.point = findMin(p.left, p.cutDim); // find and copy replacement
+				p.setPoint(findMin(p.left, p.cutDim)); // find and copy replacement
 				p.right = delete(p.point.getPoint2D(), p.left); // delete left but move to right!!
 				p.left = null; // left subtree is now empty
 			} else { // deleted point in leaf
@@ -108,9 +261,55 @@ public class MinimalKdTree<LPoint extends LabeledPoint2D> {
 		} else { // delete from right subtree
 			p.right = delete(pt, p.right);
 		}
+		if (p != null)
+			p.updateCounts();
+		return p;
+	}
+
+	/**
+	 * Lazily delete a point from node's subtree by marking its node dead. Any
+	 * subtree on the search path whose fraction of dead nodes exceeds
+	 * deadThreshold is rebuilt from its live points.
+	 */
+	KDNode lazyDelete(Point2D pt, KDNode p) throws Exception {
+		if (p == null) { // fell out of tree?
+			throw new Exception("Attempt to delete a nonexistent point");
+		} else if (pt.equals(p.point.getPoint2D())) { // found it
+			if (p.dead)
+				throw new Exception("Attempt to delete a nonexistent point");
+			p.dead = true;
+		} else if (p.onLeft(pt)) {
+			p.left = lazyDelete(pt, p.left);
+		} else {
+			p.right = lazyDelete(pt, p.right);
+		}
+		p.updateCounts();
+		if (p.nDead > deadThreshold * p.nNodes) { // too many tombstones?
+			return rebuild(p);
+		}
 		return p;
 	}
 
+	/**
+	 * Rebuild a subtree from its live points, keeping the cutting dimension of
+	 * its root so that the alternation with the levels above is preserved.
+	 */
+	KDNode rebuild(KDNode p) {
+		ArrayList<LPoint> live = new ArrayList<LPoint>(p.nNodes - p.nDead);
+		listPoints(p, live);
+		@SuppressWarnings("unchecked")
+		LPoint[] array = live.toArray((LPoint[]) new LabeledPoint2D[live.size()]);
+		return build(array, 0, array.length, p.cutDim);
+	}
+
+	int nodeCount(KDNode p) {
+		return (p == null ? 0 : p.nNodes);
+	}
+
+	int deadCount(KDNode p) {
+		return (p == null ? 0 : p.nDead);
+	}
+
 	/**
 	 * Find min node in subtree along coordinate i.
 	 */
@@ -143,6 +342,207 @@ public class MinimalKdTree<LPoint extends LabeledPoint2D> {
 		}
 	}
 
+	/**
+	 * Label every node in the subtree with the component of its point and with
+	 * the component shared by all the live points of its subtree (-1 if mixed,
+	 * NO_COMP if there are none). Returns the subtree label.
+	 */
+	int labelComponents(KDNode p, ToIntFunction<LPoint> compOf) {
+		if (p == null) {
+			return NO_COMP;
+		}
+		p.comp = (p.dead ? NO_COMP : compOf.applyAsInt(p.point));
+		int label = combine(p.comp, labelComponents(p.left, compOf));
+		p.subtreeComp = combine(label, labelComponents(p.right, compOf));
+		return p.subtreeComp;
+	}
+
+	/**
+	 * The component label of the union of two groups of points.
+	 */
+	static int combine(int comp1, int comp2) {
+		if (comp1 == NO_COMP) {
+			return comp2;
+		} else if (comp2 == NO_COMP || comp1 == comp2) {
+			return comp1;
+		} else {
+			return -1; // mixed
+		}
+	}
+
+	/**
+	 * Nearest-neighbor search that allocates nothing. Instead of building the
+	 * cells as rectangles, the search carries q's offsets (off0, off1) from p's
+	 * cell along each axis, from which the squared distance to the cell follows
+	 * directly. The caller's best (of squared distance bestDist) is returned if
+	 * nothing closer is found in the subtree. Among equidistant points the one
+	 * first in (x, y) order wins, so the answer does not depend on the shape
+	 * of the tree (nor on the initial best).
+	 */
+	KDNode nearestNode(double qx, double qy, KDNode p, double off0, double off1, KDNode best, double bestDist) {
+		if (p == null) {
+			return best;
+		}
+		double d = distanceSq(qx, qy, p);
+		if (!p.dead && (d < bestDist || (d == bestDist && precedes(p, best)))) {
+			best = p;
+			bestDist = d;
+		}
+		int cd = p.cutDim;
+		double diff = (cd == 0 ? qx : qy) - p.cutVal(); // signed offset from the cut
+		KDNode near = (diff < 0 ? p.left : p.right);
+		KDNode far = (diff < 0 ? p.right : p.left);
+		KDNode b = nearestNode(qx, qy, near, off0, off1, best, bestDist);
+		if (b != best) {
+			best = b;
+			bestDist = distanceSq(qx, qy, b);
+		}
+		if (cd == 0) { // the far cell is at distance |diff| along the cut
+			off0 = diff;
+		} else {
+			off1 = diff;
+		}
+		if (off0 * off0 + off1 * off1 <= bestDist) { // is far side viable? (it may hold a tie)
+			best = nearestNode(qx, qy, far, off0, off1, best, bestDist);
+		}
+		return best;
+	}
+
+	/**
+	 * Does p's point come before best's in (x, y) order? This breaks ties
+	 * between equidistant nearest neighbors.
+	 */
+	boolean precedes(KDNode p, KDNode best) {
+		return best == null || p.x < best.x || (p.x == best.x && p.y < best.y);
+	}
+
+	/**
+	 * Find the point closest to q whose component differs from comp, searching
+	 * in the same allocation-free way as nearestNode. Subtrees lying entirely in
+	 * comp are skipped without being visited.
+	 */
+	KDNode nearestOutside(double qx, double qy, int comp, KDNode p, double off0, double off1, KDNode best,
+			double bestDist) {
+		if (p == null || p.subtreeComp == comp || off0 * off0 + off1 * off1 >= bestDist) {
+			return best;
+		}
+		double d = distanceSq(qx, qy, p);
+		if (!p.dead && p.comp != comp && d < bestDist) {
+			best = p;
+			bestDist = d;
+		}
+		int cd = p.cutDim;
+		double diff = (cd == 0 ? qx : qy) - p.cutVal(); // signed offset from the cut
+		KDNode near = (diff < 0 ? p.left : p.right);
+		KDNode far = (diff < 0 ? p.right : p.left);
+		KDNode b = nearestOutside(qx, qy, comp, near, off0, off1, best, bestDist);
+		if (b != best) {
+			best = b;
+			bestDist = distanceSq(qx, qy, b);
+		}
+		if (cd == 0) {
+			off0 = diff;
+		} else {
+			off1 = diff;
+		}
+		return nearestOutside(qx, qy, comp, far, off0, off1, best, bestDist);
+	}
+
+	/**
+	 * Collect the k points closest to q into a max-heap of size at most k (the
+	 * farthest candidate on top). Offsets are as in nearestNode.
+	 */
+	void kNearest(double qx, double qy, KDNode p, double off0, double off1, int k, PriorityQueue<KDNode> heap) {
+		if (p == null) {
+			return;
+		}
+		if (p.dead) {
+			// tombstone: only its cut is used
+		} else if (heap.size() < k) {
+			heap.add(p);
+		} else if (distanceSq(qx, qy, p) < distanceSq(qx, qy, heap.peek())) {
+			heap.poll(); // replace the farthest candidate
+			heap.add(p);
+		}
+		int cd = p.cutDim;
+		double diff = (cd == 0 ? qx : qy) - p.cutVal();
+		kNearest(qx, qy, (diff < 0 ? p.left : p.right), off0, off1, k, heap);
+		if (cd == 0) {
+			off0 = diff;
+		} else {
+			off1 = diff;
+		}
+		if (heap.size() < k || off0 * off0 + off1 * off1 < distanceSq(qx, qy, heap.peek())) { // far side viable?
+			kNearest(qx, qy, (diff < 0 ? p.right : p.left), off0, off1, k, heap);
+		}
+	}
+
+	/**
+	 * Collect all the points of the subtree within squared distance rSq of q.
+	 */
+	void withinRadius(Point2D q, KDNode p, Rectangle2D cell, double rSq, ArrayList<LPoint> list) {
+		if (p != null && cell.distanceSq(q) <= rSq) {
+			if (!p.dead && distanceSq(q.getX(), q.getY(), p) <= rSq)
+				list.add(p.point);
+			int cd = p.cutDim;
+			withinRadius(q, p.left, cell.leftPart(cd, p.cutVal()), rSq, list);
+			withinRadius(q, p.right, cell.rightPart(cd, p.cutVal()), rSq, list);
+		}
+	}
+
+	/**
+	 * Squared distance from (qx, qy) to the node's point.
+	 */
+	double distanceSq(double qx, double qy, KDNode p) {
+		return (qx - p.x) * (qx - p.x) + (qy - p.y) * (qy - p.y);
+	}
+
+	/**
+	 * Position of (x, y) along a Hilbert curve through a 2^15 x 2^15 grid over
+	 * the bounding box. The result is less than 2^30.
+	 */
+	long hilbertKey(double x, double y) {
+		final int order = 1 << 15;
+		double wx = bbox.getWidth(0), wy = bbox.getWidth(1);
+		int gx = (int) Math.min(order - 1, Math.max(0, (wx > 0 ? (x - bbox.low.getX()) / wx * order : 0)));
+		int gy = (int) Math.min(order - 1, Math.max(0, (wy > 0 ? (y - bbox.low.getY()) / wy * order : 0)));
+		long d = 0;
+		for (int s = order / 2; s > 0; s /= 2) {
+			int rx = ((gx & s) > 0 ? 1 : 0);
+			int ry = ((gy & s) > 0 ? 1 : 0);
+			d += (long) s * s * ((3 * rx) ^ ry);
+			if (ry == 0) { // rotate the quadrant
+				if (rx == 1) {
+					gx = s - 1 - gx;
+					gy = s - 1 - gy;
+				}
+				int t = gx;
+				gx = gy;
+				gy = t;
+			}
+		}
+		return d;
+	}
+
+	/**
+	 * Signed offset of coordinate c from the interval [lo, hi] (0 if inside).
+	 */
+	static double offset(double c, double lo, double hi) {
+		return (c < lo ? c - lo : (c > hi ? c - hi : 0));
+	}
+
+	/**
+	 * Append the points of the node's subtree in preorder.
+	 */
+	void listPoints(KDNode p, ArrayList<LPoint> list) {
+		if (p != null) {
+			if (!p.dead)
+				list.add(p.point);
+			listPoints(p.left, list);
+			listPoints(p.right, list);
+		}
+	}
+
 	// -----------------------------------------------------------------
 	// Private data
 	// -----------------------------------------------------------------
@@ -150,6 +550,7 @@ public class MinimalKdTree<LPoint extends LabeledPoint2D> {
 	private KDNode root; // root of the tree
 	private int nPoints; // number of points in the tree
 	private Rectangle2D bbox; // the bounding box
+	private double deadThreshold; // max dead fraction of a subtree (0 = no lazy deletion)
 
 	// -----------------------------------------------------------------
 	// Public members
@@ -162,6 +563,7 @@ public class MinimalKdTree<LPoint extends LabeledPoint2D> {
 		root = null;
 		nPoints = 0;
 		this.bbox = new Rectangle2D(bbox);
+		deadThreshold = 0;
 	}
 
 	/**
@@ -204,10 +606,53 @@ public class MinimalKdTree<LPoint extends LabeledPoint2D> {
 	 * fully. It suffices that it has enough information to satisfy the comparator.
 	 */
 	public void delete(Point2D pt) throws Exception {
-		root = delete(pt, root); // delete the point
+		if (deadThreshold > 0) {
+			root = lazyDelete(pt, root); // leave a tombstone
+		} else {
+			root = delete(pt, root); // delete the point
+		}
 		nPoints -= 1; // one fewer point
 	}
 
+	/**
+	 * Turn lazy deletion on or off. With a threshold in (0, 1), delete only marks
+	 * the point's node as dead, and a subtree is rebuilt once more than this
+	 * fraction of its nodes are dead. A threshold of 0 restores the standard
+	 * deletion (and removes any remaining tombstones).
+	 */
+	public void setLazyDelete(double threshold) throws Exception {
+		if (threshold < 0 || threshold >= 1) {
+			throw new Exception("Lazy deletion threshold is outside valid bounds");
+		}
+		deadThreshold = threshold;
+		if (threshold == 0 && root != null && root.nDead > 0) {
+			root = rebuild(root);
+		}
+	}
+
+	/**
+	 * Replace the contents of the tree by the given points, building a balanced
+	 * tree (median splits) in O(n log n) time. Unlike repeated insertion, the
+	 * shape of the result depends only on the set of points, not on their
+	 * order (see select).
+	 */
+	public void bulkLoad(List<LPoint> pts) throws Exception {
+		@SuppressWarnings("unchecked")
+		LPoint[] array = (LPoint[]) new LabeledPoint2D[pts.size()];
+		HashSet<Point2D> seen = new HashSet<Point2D>();
+		for (int i = 0; i < array.length; i++) {
+			LPoint pt = pts.get(i);
+			if (!bbox.contains(pt.getPoint2D())) {
+				throw new Exception("Attempt to insert a point outside bounding box");
+			} else if (!seen.add(pt.getPoint2D())) {
+				throw new Exception("Attempt to insert a duplicate point");
+			}
+			array[i] = pt;
+		}
+		root = build(array, 0, array.length, 0);
+		nPoints = array.length;
+	}
+
 	/**
 	 * Remove all items, resulting in an empty tree
 	 */
@@ -218,7 +663,7 @@ public class MinimalKdTree<LPoint extends LabeledPoint2D> {
 
 	Point2D nearestNeighbor(Point2D q, KDNode p, Rectangle2D cell, Point2D best) {
 		if (p != null) {
-			if (q.distanceSq((Point2D) p.point) < q.distanceSq(best))
+			if (!p.dead && q.distanceSq((Point2D) p.point) < q.distanceSq(best))
 				best = (Point2D) p.point;
 			int cd = p.cutDim;
 			Rectangle2D leftCell = cell.leftPart(cd, p.point.get(cd));
@@ -246,7 +691,7 @@ public class MinimalKdTree<LPoint extends LabeledPoint2D> {
 			} else {
 				best2D = best.getPoint2D();
 			}
-			if (q.getPoint2D().distanceSq(p.point.getPoint2D()) < q.getPoint2D().distanceSq(best2D))
+			if (!p.dead && q.getPoint2D().distanceSq(p.point.getPoint2D()) < q.getPoint2D().distanceSq(best2D))
 				best = p.point;
 
 			int cd = p.cutDim;
@@ -271,12 +716,110 @@ public class MinimalKdTree<LPoint extends LabeledPoint2D> {
 		return root;
 	}
 
+	/**
+	 * Find the point closest to q (null if the tree is empty). The search does
+	 * not allocate any objects.
+	 */
+	public LPoint nearestNeighbor(Point2D q) {
+		double qx = q.getX(), qy = q.getY();
+		KDNode best = nearestNode(qx, qy, root, offset(qx, bbox.low.getX(), bbox.high.getX()),
+				offset(qy, bbox.low.getY(), bbox.high.getY()), null, Double.POSITIVE_INFINITY);
+		return (best == null ? null : best.point);
+	}
+
+	/**
+	 * The k points closest to q, sorted by increasing distance (fewer if the
+	 * tree holds fewer than k points). k must be positive.
+	 */
+	public ArrayList<LPoint> kNearest(Point2D q, int k) throws Exception {
+		if (k <= 0) {
+			throw new Exception("Number of nearest neighbors must be positive");
+		}
+		double qx = q.getX(), qy = q.getY();
+		ArrayList<LPoint> result = new ArrayList<LPoint>();
+		Comparator<KDNode> byDistance = Comparator.comparingDouble(p -> distanceSq(qx, qy, p));
+		PriorityQueue<KDNode> heap = new PriorityQueue<KDNode>(Math.min(k, size()) + 1, byDistance.reversed());
+		kNearest(qx, qy, root, offset(qx, bbox.low.getX(), bbox.high.getX()),
+				offset(qy, bbox.low.getY(), bbox.high.getY()), k, heap);
+		while (!heap.isEmpty()) // farthest first
+			result.add(heap.poll().point);
+		Collections.reverse(result);
+		return result;
+	}
+
+	/**
+	 * All the points within distance r of q (boundary included), sorted by
+	 * increasing distance.
+	 */
+	public ArrayList<LPoint> withinRadius(Point2D q, double r) {
+		ArrayList<LPoint> result = new ArrayList<LPoint>();
+		withinRadius(q, root, bbox, r * r, result);
+		result.sort(Comparator.comparingDouble(pt -> q.distanceSq(pt.getPoint2D())));
+		return result;
+	}
+
+	/**
+	 * Answer a batch of nearest-neighbor queries, returning the answers in the
+	 * order of the queries. The queries are sorted along a Hilbert curve, so
+	 * that successive searches touch the same part of the tree and each can
+	 * start from the previous answer, and the sorted runs are answered in
+	 * parallel on the common fork-join pool. The answers are the same as those
+	 * of nearestNeighbor, ties included. The tree must not be modified while
+	 * this runs.
+	 */
+	public ArrayList<LPoint> nearestNeighbors(List<LPoint> queries) {
+		LabeledPoint2D[] qs = queries.toArray(new LabeledPoint2D[0]); // the list may not be random access
+		int n = qs.length;
+		long[] order = new long[n]; // Hilbert key in the high bits, index in the low
+		for (int i = 0; i < n; i++) {
+			order[i] = (hilbertKey(qs[i].getX(), qs[i].getY()) << 32) | i;
+		}
+		Arrays.parallelSort(order);
+		Object[] answers = new Object[n];
+		ForkJoinPool.commonPool().invoke(new BatchTask(qs, order, answers, 0, n));
+		ArrayList<LPoint> result = new ArrayList<LPoint>(n);
+		for (Object a : answers) {
+			@SuppressWarnings("unchecked")
+			LPoint pt = (LPoint) a;
+			result.add(pt);
+		}
+		return result;
+	}
+
 	public LPoint nearestNeighbor(LPoint start) {
-		return nearestNeighbor(start, root, bbox, null);
+		return nearestNeighbor(start.getPoint2D());
+	}
+
+	/**
+	 * Assign component labels for a Boruvka round. compOf maps each point to its
+	 * current component; the labels stay valid until the next call.
+	 */
+	public void labelComponents(ToIntFunction<LPoint> compOf) {
+		labelComponents(root, compOf);
+	}
+
+	/**
+	 * Nearest point to q that is not in component comp and is closer than
+	 * bound (squared distance). Requires a prior call to labelComponents.
+	 */
+	public LPoint nearestOutside(LPoint q, int comp, double bound) {
+		double qx = q.getX(), qy = q.getY();
+		KDNode best = nearestOutside(qx, qy, comp, root, offset(qx, bbox.low.getX(), bbox.high.getX()),
+				offset(qy, bbox.low.getY(), bbox.high.getY()), null, bound);
+		return (best == null ? null : best.point);
+	}
+
+	/**
+	 * List the points in preorder. Every subtree occupies a contiguous range of
+	 * the list, so splitting it into ranges yields spatially coherent groups.
+	 */
+	public ArrayList<LPoint> listPoints() {
+		ArrayList<LPoint> list = new ArrayList<LPoint>();
+		listPoints(root, list);
+		return list;
 	}
 
 	public void delete(LPoint pt2) throws Exception {
-		root = delete(pt2.getPoint2D(), root); // delete the point
-		nPoints -= 1; // one fewer point
+		delete(pt2.getPoint2D());
 	}
 }
@@ -0,0 +1,184 @@
+package cmsc420_s22;
+
+import java.util.ArrayList;
+
+/**
+ * A pairing heap. The heap is a single tree in which no node has a smaller key
+ * than its parent; each node keeps its children in a list. insert and
+ * decreaseKey link a one-node (or cut-off) tree with the root in O(1) time,
+ * and extractMin combines the children of the root by the standard two-pass
+ * pairing, in O(log n) amortized time.
+ */
+
+public class PairingHeap<Key extends Comparable<Key>, Value> implements MinHeap<Key, Value> {
+
+	// -----------------------------------------------------------------
+	// Locator - a node of the tree
+	// -----------------------------------------------------------------
+
+	public class Locator implements MinHeap.Locator {
+		private Key key; // key (for sorting)
+		private final Value value; // value (application dependent)
+		private Locator child; // first child
+		private Locator next; // next sibling
+		private Locator prev; // previous sibling, or parent if first child
+		private final int epoch; // the heap's epoch at insertion
+
+		private Locator(Key key, Value value, int epoch) {
+			this.key = key;
+			this.value = value;
+			this.epoch = epoch;
+		}
+	}
+
+	// -----------------------------------------------------------------
+	// Private members
+	// -----------------------------------------------------------------
+
+	private Locator root; // root of the tree (null if empty)
+	private int size; // number of entries
+	private int epoch; // number of clears (older locators are invalid)
+	private ArrayList<Locator> pairs; // scratch list for extractMin
+
+	// -----------------------------------------------------------------
+	// Local utilities
+	// -----------------------------------------------------------------
+
+	/**
+	 * Link two detached trees, making the root of larger key the first child
+	 * of the other. Returns the new root.
+	 */
+	Locator link(Locator u, Locator v) {
+		if (u == null) {
+			return v;
+		} else if (v == null) {
+			return u;
+		} else if (v.key.compareTo(u.key) < 0) {
+			Locator t = u;
+			u = v;
+			v = t;
+		}
+		v.prev = u;
+		v.next = u.child;
+		if (u.child != null)
+			u.child.prev = v;
+		u.child = v;
+		return u;
+	}
+
+	/**
+	 * Detach the subtree of u (not the root) from its parent's child list.
+	 */
+	void detach(Locator u) {
+		if (u.prev.child == u) { // u is a first child
+			u.prev.child = u.next;
+		} else {
+			u.prev.next = u.next;
+		}
+		if (u.next != null)
+			u.next.prev = u.prev;
+		u.prev = u.next = null;
+	}
+
+	/**
+	 * Combine a list of sibling trees into one: link them in pairs from left to
+	 * right, then link the results from right to left.
+	 */
+	Locator combine(Locator first) {
+		pairs.clear();
+		while (first != null) {
+			Locator a = first, b = first.next;
+			first = (b == null ? null : b.next);
+			a.prev = a.next = null;
+			if (b != null)
+				b.prev = b.next = null;
+			pairs.add(link(a, b));
+		}
+		Locator result = null;
+		for (int i = pairs.size() - 1; i >= 0; i--)
+			result = link(pairs.get(i), result);
+		pairs.clear();
+		return result;
+	}
+
+	// -----------------------------------------------------------------
+	// Public members
+	// -----------------------------------------------------------------
+
+	/**
+	 * Creates an empty heap.
+	 */
+	public PairingHeap() {
+		root = null;
+		size = 0;
+		epoch = 0;
+		pairs = new ArrayList<Locator>();
+	}
+
+	/**
+	 * Insert key-value pair.
+	 */
+	public Locator insert(Key x, Value v) {
+		Locator u = new Locator(x, v, epoch);
+		root = link(root, u);
+		size += 1;
+		return u;
+	}
+
+	/**
+	 * Get the minimum key from the heap.
+	 */
+	public Key getMinKey() throws Exception {
+		if (root == null) {
+			throw new Exception("Empty heap");
+		}
+		return root.key;
+	}
+
+	/**
+	 * Remove the root and return its value.
+	 */
+	public Value extractMin() throws Exception {
+		if (root == null) {
+			throw new Exception("Empty heap");
+		}
+		Locator min = root;
+		root = combine(min.child);
+		min.child = null;
+		size -= 1;
+		return min.value;
+	}
+
+	/**
+	 * Lower the key of the entry referenced by r, cutting its subtree off and
+	 * linking it with the root. The new key must not be larger than the old
+	 * one, and r must not predate the last clear.
+	 */
+	public void decreaseKey(MinHeap.Locator r, Key newKey) throws Exception {
+		@SuppressWarnings("unchecked")
+		Locator u = (Locator) r;
+		if (u.epoch != epoch || (u != root && u.prev == null)) { // not in the tree
+			throw new Exception("Attempt to decrease the key of a nonexistent entry");
+		} else if (newKey.compareTo(u.key) > 0) {
+			throw new Exception("Attempt to increase a key with decreaseKey");
+		}
+		u.key = newKey;
+		if (u != root) {
+			detach(u);
+			root = link(root, u);
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Clear the entire structure.
+	 */
+	public void clear() {
+		root = null;
+		size = 0;
+		epoch += 1; // invalidate the existing locators
+	}
+}
@@ -0,0 +1,124 @@
+package cmsc420_s22;
+
+import java.util.Arrays;
+
+/**
+ * A point in d-dimensional space, for any d >= 1. This is the d-dimensional
+ * counterpart of Point2D; the 2D classes stay specialized so that their
+ * searches do not pay for the generality.
+ */
+
+public class PointD {
+	private double[] coord; // coordinates
+
+	/**
+	 * Construct from coordinates. The dimension is the number of coordinates.
+	 * 
+	 * @param coord The coordinates.
+	 */
+	public PointD(double... coord) {
+		this.coord = Arrays.copyOf(coord, coord.length);
+	}
+
+	/**
+	 * Copy constructor.
+	 * 
+	 * @param pt The point to copy.
+	 */
+	public PointD(PointD pt) {
+		coord = Arrays.copyOf(pt.coord, pt.coord.length);
+	}
+
+	/**
+	 * Get the dimension.
+	 * 
+	 * @return The dimension
+	 */
+	public int getDimension() {
+		return coord.length;
+	}
+
+	/**
+	 * Get the i-th coordinate.
+	 * 
+	 * @param i The coordinate index.
+	 * @return The i-th coordinate of the point.
+	 */
+	public double get(int i) {
+		return coord[i];
+	}
+
+	/**
+	 * Set the i-th coordinate.
+	 * 
+	 * @param i The coordinate index.
+	 * @param x The new coordinate value.
+	 */
+	public void set(int i, double x) {
+		coord[i] = x;
+	}
+
+	/**
+	 * Squared Euclidean distance to another point of the same dimension.
+	 * 
+	 * @param pt The other point.
+	 * @return The squared distance between the two points.
+	 */
+	public double distanceSq(PointD pt) {
+		if (pt == null)
+			return Double.POSITIVE_INFINITY;
+		double sum = 0;
+		for (int i = 0; i < coord.length; i++) {
+			double diff = coord[i] - pt.coord[i];
+			sum += diff * diff;
+		}
+		return sum;
+	}
+
+	/**
+	 * Euclidean distance to another point of the same dimension.
+	 * 
+	 * @param pt The other point.
+	 * @return The distance between the two points.
+	 */
+	public double distance(PointD pt) {
+		return Math.sqrt(distanceSq(pt));
+	}
+
+	/**
+	 * Determines if two points are equal.
+	 * 
+	 * @param pt The other point
+	 * @return True if equal
+	 */
+	public boolean equals(Object obj) {
+		if (obj instanceof PointD) {
+			return Arrays.equals(coord, ((PointD) obj).coord);
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the hashcode for this PointD.
+	 * 
+	 * @return A hash code for this PointD.
+	 */
+	public int hashCode() {
+		return Arrays.hashCode(coord);
+	}
+
+	/**
+	 * String representation.
+	 * 
+	 * @return String representation of the point.
+	 */
+	public String toString() {
+		StringBuilder s = new StringBuilder("(");
+		for (int i = 0; i < coord.length; i++) {
+			if (i > 0)
+				s.append(",");
+			s.append(coord[i]);
+		}
+		return s.append(")").toString();
+	}
+}
@@ -0,0 +1,334 @@
+package cmsc420_s22;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.ToDoubleBiFunction;
+
+/**
+ * Prim's algorithm over a dynamic nearest-neighbor index, shared by EMSTree
+ * (2D) and EMSTreeD (d dimensions). The points not yet in the tree are kept in
+ * the index; each tree point offers the edge to its nearest non-tree point to
+ * a heap, and when a point joins the tree only the tree points that had it as
+ * nearest neighbor query the index again. Subclasses supply the geometry and
+ * the index.
+ *
+ * Ties are broken the same way everywhere, so the log and the tree depend only
+ * on the point set and start: a nearest-neighbor query returns the closest
+ * point first in coordinate order, and heap entries of equal length are extracted
+ * in the order they were offered (see EdgeKey). The output is therefore the
+ * same for every index, every heap, and lazy or eager mode. On inputs with
+ * tied distances it can differ from the original version, whose choices
+ * among tied points and edges followed the shapes of its kd-tree and its
+ * 10-level quake heap.
+ */
+
+abstract class PrimEMST<P> {
+
+	// -----------------------------------------------------------------
+	// Private data
+	// -----------------------------------------------------------------
+
+	private ArrayList<P> pointList;
+	private HashSet<P> inEMST;
+	private ArrayList<Pair<P>> edgeList;
+	private MinHeap<EdgeKey, Pair<P>> heap; // candidate edges, by squared length
+	private long nextSeq; // sequence number of the next offered edge
+	private HashMap<P, ArrayList<P>> dependents;
+	private boolean eager; // keep one heap entry per non-tree point?
+	private HashMap<P, MinHeap.Locator> locators; // eager: heap entry of each non-tree point
+	private HashMap<P, P> connector; // eager: closest tree point of each non-tree point
+
+	// -----------------------------------------------------------------
+	// Geometry and index, supplied by the subclass
+	// -----------------------------------------------------------------
+
+	abstract boolean inBox(P pt); // does the bounding box contain pt?
+
+	abstract P find(P pt); // the indexed point at pt's location (null if none)
+
+	abstract void insert(P pt) throws Exception; // add a point to the index
+
+	abstract void delete(P pt) throws Exception; // remove a point from the index
+
+	abstract void bulkLoad(List<P> pts) throws Exception; // replace the index contents
+
+	abstract P nearestNeighbor(P pt); // closest indexed point (null if empty)
+
+	abstract int indexSize(); // number of indexed points
+
+	abstract void clearIndex(); // remove all indexed points
+
+	abstract double distance(P pt, P nn); // squared distance
+
+	abstract String getLabel(P pt);
+
+	// -----------------------------------------------------------------
+	// Public members
+	// -----------------------------------------------------------------
+
+	/**
+	 * The default heap: a quake heap whose number of levels follows its size,
+	 * so that its trees can grow as tall as the number of candidate edges
+	 * requires. Its keys are distinct, so its shape does not affect the order
+	 * of extraction.
+	 */
+	static <P> QuakeHeap<EdgeKey, Pair<P>> newHeap() {
+		return new QuakeHeap<EdgeKey, Pair<P>>();
+	}
+
+	PrimEMST(MinHeap<EdgeKey, Pair<P>> heap) {
+		pointList = new ArrayList<P>();
+		inEMST = new HashSet<P>();
+		edgeList = new ArrayList<Pair<P>>();
+		this.heap = heap;
+		nextSeq = 0;
+		dependents = new HashMap<P, ArrayList<P>>();
+		eager = false;
+		locators = new HashMap<P, MinHeap.Locator>();
+		connector = new HashMap<P, P>();
+	}
+
+	/**
+	 * Add a point to the set, and offer the edge to its nearest indexed point
+	 * to the heap. Every point is counted by size(), but points outside the
+	 * bounding box and duplicates are not indexed (buildEMST rejects them).
+	 */
+	public void addPoint(P pt) throws Exception {
+		if (pt != null) {
+			pointList.add(pt);
+			dependents.put(pt, new ArrayList<P>());
+			if (inBox(pt) && find(pt) == null)
+				insert(pt);
+			P nn = nearestNeighbor(pt);
+			if (nn != null) {
+				heap.insert(new EdgeKey(distance(pt, nn), nextSeq++), new Pair<P>(pt, nn));
+			}
+		}
+	}
+
+	public void clear() {
+		edgeList.clear();
+		inEMST.clear();
+		heap.clear();
+		nextSeq = 0;
+		locators.clear();
+		connector.clear();
+		dependents.clear();
+		clearIndex();
+		pointList.clear();
+	}
+
+	public int size() {
+		return pointList.size();
+	}
+
+	/**
+	 * Choose between lazy (the default) and eager Prim in buildEMST. The lazy
+	 * version inserts a new heap entry whenever a tree point gets a new nearest
+	 * neighbor, leaving stale entries behind. The eager version keeps a single
+	 * entry per non-tree point, keyed by its distance to the closest tree point
+	 * that has it as nearest neighbor, and lowers that key with decreaseKey. The
+	 * heap then holds no stale entries. When a non-tree point is equally close
+	 * to several tree points, the eager version keeps the first offer, which is
+	 * also the one the lazy version extracts first; both produce the same log
+	 * and tree.
+	 */
+	public void setEager(boolean eager) {
+		this.eager = eager;
+	}
+
+	/**
+	 * Build the EMST with Prim's algorithm from start, returning the new-nn log.
+	 * Each add line lists the nearest neighbors recomputed because the added
+	 * point was their nearest neighbor (each pair is reported once). The
+	 * indexes break distance ties by coordinate order, so a tree point's nearest
+	 * neighbor changes only when that neighbor joins the tree; the log is thus
+	 * the same as the one obtained by querying every tree point at each step.
+	 */
+	public ArrayList<String> buildEMST(P start) throws Exception {
+		ArrayList<String> result = new ArrayList<String>();
+		HashSet<String> record = new HashSet<String>();
+
+		if (!inBox(start)) {
+			throw new Exception("Attempt to insert a point outside bounding box");
+		}
+		initializeEMST(start);
+		P nn = nearestNeighbor(start);
+		if (nn == null) {
+			return result;
+		}
+		String line1 = "new-nn: (" + getLabel(start) + "->" + getLabel(nn) + ")";
+		record.add(line1);
+		result.add(line1);
+		addNearNeighbor(start, nn);
+
+		while (indexSize() != 0) {
+			Pair<P> edge = heap.extractMin();
+			P pt2 = edge.getSecond();
+			if (eager) { // the entry's first point may have been superseded
+				locators.remove(pt2);
+				edge = new Pair<P>(connector.remove(pt2), pt2);
+			}
+			if (inEMST.contains(pt2))
+				continue; // stale entry
+			// only the points that depended on pt2 get a new nearest neighbor
+			ArrayList<String> record2 = new ArrayList<String>();
+			for (Pair<P> newNN : addEdge(edge)) {
+				String line3 = " (" + getLabel(newNN.getFirst()) + "->" + getLabel(newNN.getSecond()) + ")";
+				if (record.add(line3)) {
+					record2.add(line3);
+				}
+			}
+			Collections.sort(record2);
+			String line2 = "add: " + edge + " new-nn:";
+			for (String str : record2) {
+				line2 = line2.concat(str);
+			}
+			result.add(line2);
+		}
+		return result;
+	}
+
+	public ArrayList<String> listEMST() {
+		ArrayList<String> result = new ArrayList<String>();
+
+		for (Pair<P> e : edgeList) {
+			result.add("(" + getLabel(e.getFirst()) + "," + getLabel(e.getSecond()) + ")");
+		}
+		return result;
+	}
+
+	// -----------------------------------------------------------------
+	// Package members
+	// -----------------------------------------------------------------
+
+	ArrayList<P> getPointList() {
+		return pointList;
+	}
+
+	/**
+	 * Reset the EMST and load every point but start into the index. The index
+	 * is bulk loaded rather than filled by repeated insertion, so its shape
+	 * differs, but its nearest-neighbor answers (ties included) do not.
+	 */
+	void initializeEMST(P start) throws Exception {
+		edgeList.clear();
+		inEMST.clear();
+		heap.clear();
+		nextSeq = 0;
+		locators.clear();
+		connector.clear();
+		dependents.replaceAll((k, v) -> new ArrayList<P>());
+		dependents.putIfAbsent(start, new ArrayList<P>());
+		ArrayList<P> others = new ArrayList<P>(pointList.size());
+		for (P pt : pointList) {
+			if (pt != start)
+				others.add(pt);
+		}
+		bulkLoad(others); // balanced, whatever the input order
+		inEMST.add(start);
+	}
+
+	/**
+	 * Add an edge to the EMST and recompute the nearest neighbors of the points
+	 * that depended on its new endpoint. Returns the (point, new nearest
+	 * neighbor) pairs.
+	 */
+	ArrayList<Pair<P>> addEdge(Pair<P> edge) throws Exception {
+		P pt2 = edge.getSecond();
+		ArrayList<Pair<P>> newNNs = new ArrayList<Pair<P>>();
+
+		edgeList.add(edge);
+		inEMST.add(pt2);
+		delete(pt2);
+		ArrayList<P> dep2 = dependents.get(pt2);
+		dep2.add(pt2);
+		for (P pt3 : dep2) {
+			P nn3 = nearestNeighbor(pt3);
+			if (nn3 == null)
+				break;
+			addNearNeighbor(pt3, nn3);
+			newNNs.add(new Pair<P>(pt3, nn3));
+		}
+		return newNNs;
+	}
+
+	/**
+	 * Store the edges of a spanning tree computed by another engine. The edges
+	 * are oriented away from start and ordered as Prim's algorithm would add them
+	 * (always the shortest tree edge leaving the current component), so that
+	 * listEMST matches the output of buildEMST. Edges are compared by the given
+	 * length function.
+	 */
+	void setEdgeList(P start, List<Pair<P>> tree, ToDoubleBiFunction<P, P> length) {
+		edgeList.clear();
+		inEMST.clear();
+		heap.clear();
+		HashMap<P, ArrayList<P>> adj = new HashMap<P, ArrayList<P>>();
+		for (Pair<P> e : tree) {
+			adj.computeIfAbsent(e.getFirst(), k -> new ArrayList<P>()).add(e.getSecond());
+			adj.computeIfAbsent(e.getSecond(), k -> new ArrayList<P>()).add(e.getFirst());
+		}
+		PriorityQueue<Pair<P>> frontier = new PriorityQueue<Pair<P>>(
+				(e1, e2) -> Double.compare(length.applyAsDouble(e1.getFirst(), e1.getSecond()),
+						length.applyAsDouble(e2.getFirst(), e2.getSecond())));
+		inEMST.add(start);
+		for (P nb : adj.getOrDefault(start, new ArrayList<P>()))
+			frontier.add(new Pair<P>(start, nb));
+		while (!frontier.isEmpty()) {
+			Pair<P> edge = frontier.poll();
+			P pt2 = edge.getSecond();
+			if (inEMST.add(pt2)) {
+				edgeList.add(edge);
+				for (P nb : adj.get(pt2)) {
+					if (!inEMST.contains(nb))
+						frontier.add(new Pair<P>(pt2, nb));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Store the edges of a spanning tree that are already oriented away from
+	 * start and in Prim order (as GeodesicEMST reports them), skipping the
+	 * reordering and hence the length computations of the version above.
+	 */
+	void setEdgeList(P start, List<Pair<P>> primOrder) {
+		edgeList.clear();
+		inEMST.clear();
+		heap.clear();
+		inEMST.add(start);
+		for (Pair<P> edge : primOrder) {
+			edgeList.add(edge);
+			inEMST.add(edge.getSecond());
+		}
+	}
+
+	// -----------------------------------------------------------------
+	// Local utilities
+	// -----------------------------------------------------------------
+
+	/**
+	 * Record nn as the nearest non-tree neighbor of the tree point pt, and
+	 * offer the edge between them to the heap.
+	 */
+	private void addNearNeighbor(P pt, P nn) throws Exception {
+		double dist = distance(pt, nn);
+		EdgeKey key = new EdgeKey(dist, nextSeq++); // numbered in both modes
+
+		if (!eager) {
+			heap.insert(key, new Pair<P>(pt, nn));
+		} else if (!locators.containsKey(nn)) {
+			locators.put(nn, heap.insert(key, new Pair<P>(pt, nn)));
+			connector.put(nn, pt);
+		} else if (dist < distance(connector.get(nn), nn)) { // a cheaper connection
+			heap.decreaseKey(locators.get(nn), key);
+			connector.put(nn, pt);
+		}
+		dependents.get(nn).add(pt);
+	}
+}
@@ -1,11 +1,12 @@
 package cmsc420_s22;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.LinkedList;
+import java.util.function.Predicate;
 
-public class QuakeHeap<Key extends Comparable<Key>, Value> {
+public class QuakeHeap<Key extends Comparable<Key>, Value> implements MinHeap<Key, Value> {
 
 	class Node {
 		Key key; // key (for sorting)
@@ -14,6 +15,7 @@ public class QuakeHeap<Key extends Comparable<Key>, Value> {
 		Node left; // children
 		Node right;
 		Node parent; // parent
+		Node prev, next; // neighbors in the root list of this level (roots only)
 
 		/**
 		 * Basic constructor.
@@ -58,7 +60,7 @@ public class QuakeHeap<Key extends Comparable<Key>, Value> {
 	// The Node reference always points to a leaf node.
 	// -----------------------------------------------------------------
 
-	public class Locator {
+	public class Locator implements MinHeap.Locator {
 		private final Node u;
 
 		private Locator(Node u) { // basic constructor
@@ -74,10 +76,21 @@ public class QuakeHeap<Key extends Comparable<Key>, Value> {
 	// Private members
 	// -----------------------------------------------------------------
 
+	private static final int MIN_LEVELS = 2; // fewest levels when auto-scaling
+	private static final int MAX_LEVELS = 32; // enough for any int number of entries
+
 	private int nLevels; // number of levels
-	private LinkedList<Node>[] roots; // list of roots per level
+	private int maxLevels; // cap on the number of levels
+	private boolean autoLevels; // does nLevels follow the size of the heap?
+	private Node[] rootHead, rootTail; // list of roots per level (linked by prev/next)
+	private int[] rootCt; // number of roots per level
+	private Node minRoot; // root of smallest key (if minValid)
+	private boolean minValid; // is minRoot up to date?
 	private int[] nodeCt; // number of nodes per level
 	private double ratio = 0.75;
+	private boolean deterministic = true; // sort roots by key before merging?
+	private ArrayList<Node> stack = new ArrayList<Node>(); // scratch stack for quake
+	private int lastQuakeSize; // number of nodes removed by the last quake
 	// -----------------------------------------------------------------
 	// Local utilities
 	// -----------------------------------------------------------------
@@ -87,7 +100,68 @@ public class QuakeHeap<Key extends Comparable<Key>, Value> {
 	 */
 	void makeRoot(Node u) {
 		u.parent = null; // null out parent link
-		roots[u.level].add(u); // add node at u's level
+		addRoot(u); // add node at u's level
+	}
+
+	/**
+	 * Append u to the root list of its level in O(1) time.
+	 */
+	void addRoot(Node u) {
+		int lev = u.level;
+		u.prev = rootTail[lev];
+		u.next = null;
+		if (rootTail[lev] == null) {
+			rootHead[lev] = u;
+		} else {
+			rootTail[lev].next = u;
+		}
+		rootTail[lev] = u;
+		rootCt[lev] += 1;
+		if (minValid && (minRoot == null || u.key.compareTo(minRoot.key) < 0
+				|| (u.key.compareTo(minRoot.key) == 0 && u.level < minRoot.level))) {
+			minRoot = u; // u comes after any root of equal key at its level
+		}
+	}
+
+	/**
+	 * Unlink u from the root list of its level in O(1) time. Does nothing if u
+	 * is not in the list.
+	 */
+	void removeRoot(Node u) {
+		int lev = u.level;
+		if (u.prev == null && rootHead[lev] != u) // not a listed root
+			return;
+		if (u.prev == null) {
+			rootHead[lev] = u.next;
+		} else {
+			u.prev.next = u.next;
+		}
+		if (u.next == null) {
+			rootTail[lev] = u.prev;
+		} else {
+			u.next.prev = u.prev;
+		}
+		u.prev = u.next = null;
+		rootCt[lev] -= 1;
+		if (u == minRoot)
+			minValid = false; // rescan when next needed
+	}
+
+	/**
+	 * Reorder the root list of a level by key. The sort is stable, so roots of
+	 * equal key keep their order.
+	 */
+	void sortRoots(int lev) {
+		if (rootCt[lev] < 2)
+			return;
+		ArrayList<Node> list = new ArrayList<Node>(rootCt[lev]);
+		for (Node u = rootHead[lev]; u != null; u = u.next)
+			list.add(u);
+		Collections.sort(list, new ByKey());
+		rootHead[lev] = rootTail[lev] = null;
+		rootCt[lev] = 0;
+		for (Node u : list)
+			addRoot(u);
 	}
 
 	/**
@@ -96,6 +170,9 @@ public class QuakeHeap<Key extends Comparable<Key>, Value> {
 	Node trivialTree(Key x, Value v) { // create a trivial single-node tree
 		Node u = new Node(x, v); // create new leaf node
 		nodeCt[0] += 1; // increment node count
+		if (autoLevels && nLevels < maxLevels && nodeCt[0] > 1 << (nLevels - 1)) {
+			resizeLevels(nLevels + 1); // room for a tree holding all entries
+		}
 		makeRoot(u); // make it a root
 		return u;
 	}
@@ -130,12 +207,13 @@ public class QuakeHeap<Key extends Comparable<Key>, Value> {
 
 	/**
 	 * Search the roots of all the trees and return a reference to the one having
-	 * the smallest key value.
+	 * the smallest key value. Ties go to the lowest level, and then to the
+	 * earliest root in its list.
 	 */
 	Node findRootWithSmallestKey() {
 		Node min = null;
-		for (int lev = 0; lev < nLevels; lev++) { // process all levels
-			for (Node u : roots[lev]) {
+		for (int lev = 0; lev < rootHead.length; lev++) { // process all levels
+			for (Node u = rootHead[lev]; u != null; u = u.next) {
 				if (min == null) {
 					min = u;
 				} else if (u.key.compareTo(min.key) < 0) {
@@ -146,6 +224,19 @@ public class QuakeHeap<Key extends Comparable<Key>, Value> {
 		return min;
 	}
 
+	/**
+	 * The root with the smallest key (null if empty). The cached root is kept
+	 * up to date as roots are added, and the roots are only scanned again after
+	 * the cached one has been removed.
+	 */
+	Node minRoot() {
+		if (!minValid) {
+			minRoot = findRootWithSmallestKey();
+			minValid = true;
+		}
+		return minRoot;
+	}
+
 	/**
 	 * Merge all pairs of trees at the same level. We work bottom-up because merging
 	 * two trees creates a tree one level higher, which can then be merged with
@@ -153,20 +244,72 @@ public class QuakeHeap<Key extends Comparable<Key>, Value> {
 	 * above that level.
 	 * 
 	 * Alert: We sort the roots by key value. This is not part of the QuakeHeap
-	 * algorithm. It is done for the sake of having deterministic behavior.
+	 * algorithm. It is done for the sake of having deterministic behavior, and
+	 * can be turned off with setDeterministic, in which case roots are paired in
+	 * the order they were added to their level.
 	 */
 	void mergeTrees() {
 		for (int lev = 0; lev < nLevels - 1; lev++) { // process levels bottom-up
-			Collections.sort(roots[lev], new ByKey()); // sort roots by key
-			while (roots[lev].size() >= 2) { // at least two trees?
-				Node u = roots[lev].remove(); // remove two trees
-				Node v = roots[lev].remove();
+			if (deterministic)
+				sortRoots(lev); // sort roots by key
+			while (rootCt[lev] >= 2) { // at least two trees?
+				Node u = rootHead[lev]; // remove two trees
+				removeRoot(u);
+				Node v = rootHead[lev];
+				removeRoot(v);
 				Node w = link(u, v); // ... and merge them
 				makeRoot(w); // ... and make this a root
 			}
 		}
 	}
 
+	/**
+	 * Change the number of levels to nl. When there are fewer levels, the roots
+	 * above the new top level are removed, making their children roots, until
+	 * every root is below it.
+	 */
+	@SuppressWarnings("unchecked")
+	void resizeLevels(int nl) {
+		for (int i = nLevels - 1; i >= nl; i--) {
+			while (rootHead[i] != null) {
+				Node curr = rootHead[i];
+				makeRoot(curr.left);
+				if (curr.right != null) {
+					makeRoot(curr.right);
+				}
+				removeRoot(curr);
+				nodeCt[i] -= 1;
+			}
+		}
+		if (nl != rootHead.length) {
+			rootHead = Arrays.copyOf(rootHead, nl);
+			rootTail = Arrays.copyOf(rootTail, nl);
+			rootCt = Arrays.copyOf(rootCt, nl);
+			nodeCt = Arrays.copyOf(nodeCt, nl);
+		}
+		nLevels = nl;
+	}
+
+	/**
+	 * Allocate an array of n nodes (Node is an inner class of a generic class,
+	 * so its arrays can only be created through a cast).
+	 */
+	@SuppressWarnings("unchecked")
+	private Node[] newNodeArray(int n) {
+		return (Node[]) new QuakeHeap<?, ?>.Node[n];
+	}
+
+	/**
+	 * When auto-scaling, drop a level once the size has fallen to a quarter of
+	 * what the level below can hold, so that alternating inserts and
+	 * extractions near a power of two do not resize every time.
+	 */
+	void shrinkLevels() {
+		while (autoLevels && nLevels > MIN_LEVELS && nodeCt[0] < 1 << (nLevels - 3)) {
+			resizeLevels(nLevels - 1);
+		}
+	}
+
 	/**
 	 * Get a list of the nodes in preorder of a single subtree.
 	 */
@@ -189,27 +332,39 @@ public class QuakeHeap<Key extends Comparable<Key>, Value> {
 	// -----------------------------------------------------------------
 
 	/**
-	 * Default constructor.
+	 * Creates an empty heap with a fixed number of levels.
 	 */
-	@SuppressWarnings("unchecked")
 	public QuakeHeap(int nLevels) {
-		this.nLevels = nLevels;
-		roots = new LinkedList[nLevels];
+		this.nLevels = maxLevels = nLevels;
+		autoLevels = false;
+		rootHead = newNodeArray(nLevels);
+		rootTail = newNodeArray(nLevels);
+		rootCt = new int[nLevels];
 		nodeCt = new int[nLevels];
-		for (int i = 0; i < nLevels; i++) {
-			roots[i] = new LinkedList<Node>();
-			nodeCt[i] = 0;
-		}
+		minRoot = null;
+		minValid = true;
+	}
+
+	/**
+	 * Creates an empty heap whose number of levels follows its size. A level is
+	 * added whenever the size exceeds 2^(nLevels-1), so the trees can always
+	 * grow tall enough to hold every entry, and levels are dropped lazily as the
+	 * size falls. setNLevels caps the number of levels.
+	 */
+	public QuakeHeap() {
+		this(MIN_LEVELS);
+		maxLevels = MAX_LEVELS;
+		autoLevels = true;
 	}
 
 	/**
 	 * Clear the entire structure.
 	 */
 	public void clear() {
-		for (int lev = 0; lev < nLevels; lev++) {
-			roots[lev].clear();
-			nodeCt[lev] = 0;
-		}
+		clearRoots();
+		lastQuakeSize = 0;
+		if (autoLevels) // start over, so that the heap's history does not matter
+			resizeLevels(MIN_LEVELS);
 	}
 
 	/**
@@ -221,24 +376,29 @@ public class QuakeHeap<Key extends Comparable<Key>, Value> {
 	}
 
 	/**
-	 * Get the minimum key from the heap. In addition to returning the minimum, this
-	 * also applies the merging and quaking part of the reorganization.
+	 * Get the minimum key from the heap. This takes O(1) time unless the root
+	 * holding the minimum has been removed since the last call, and does not
+	 * change the heap.
 	 */
 	public Key getMinKey() throws Exception {
-		Node u = findRootWithSmallestKey(); // find the min root
+		Node u = minRoot(); // find the min root
 		if (u == null) { // heap is empty
 			throw new Exception("Empty heap");
 		}
-		mergeTrees(); // merge trees
 		return u.key;
 	}
 	
+	/**
+	 * Get the value of an entry of minimum key (the leaf at the end of the min
+	 * root's left path), without changing the heap.
+	 */
 	public Value getMinValue() throws Exception {
-		Node u = findRootWithSmallestKey(); // find the min root
+		Node u = minRoot(); // find the min root
 		if (u == null) { // heap is empty
 			throw new Exception("Empty heap");
 		}
-		//mergeTrees(); // merge trees
+		while (u.left != null) // descend to the leaf holding the key
+			u = u.left;
 		return u.value;
 	}
 	
@@ -265,9 +425,9 @@ public class QuakeHeap<Key extends Comparable<Key>, Value> {
 			if (nodeCt[lev] > 0) {
 				list.add("{lev: " + lev + " nodeCt: " + nodeCt[lev] + "}");
 			}
-			if (roots[lev].size() > 0) { // has at least one root?
-				Collections.sort(roots[lev], new ByKey()); // sort roots by key
-				for (Node u : roots[lev]) {
+			if (rootCt[lev] > 0) { // has at least one root?
+				sortRoots(lev); // sort roots by key
+				for (Node u = rootHead[lev]; u != null; u = u.next) {
 					list.addAll(getPreorderList(u));
 				}
 			}
@@ -277,16 +437,25 @@ public class QuakeHeap<Key extends Comparable<Key>, Value> {
 
 	// New functions
 
-	public void decreaseKey(Locator r, Key newKey) throws Exception {
-		Node u = r.get();
+	public void decreaseKey(MinHeap.Locator r, Key newKey) throws Exception {
+		@SuppressWarnings("unchecked")
+		Node u = ((Locator) r).get();
 		Node uChild = null;
 		do {
 			u.key = newKey;
 			uChild = u;
 			u = u.parent;
 		} while (u != null && uChild == u.left);
-		if (u != null)
-			cut(u);
+		if (u != null) {
+			cut(u); // uChild becomes a root
+		} else if (minValid && uChild != minRoot) { // the root uChild got a smaller key
+			int cmp = newKey.compareTo(minRoot.key);
+			if (cmp < 0 || (cmp == 0 && uChild.level < minRoot.level)) {
+				minRoot = uChild;
+			} else if (cmp == 0 && uChild.level == minRoot.level) {
+				minValid = false; // the order within the level decides
+			}
+		}
 	}
 
 	public Value extractMin() throws Exception {
@@ -294,7 +463,7 @@ public class QuakeHeap<Key extends Comparable<Key>, Value> {
 			throw new Exception("Empty heap");
 		} else {
 
-			Node u = find_root_with_min_key();
+			Node u = minRoot();
 			Node v = u;
 
 			while (v.left != null) {
@@ -302,33 +471,67 @@ public class QuakeHeap<Key extends Comparable<Key>, Value> {
 			}
 			Value result = v.value;
 			delete_left_path(u);
-			roots[u.level].remove(u);
 			mergeTrees();
 			quake();
+			shrinkLevels();
 			return result;
 		}
 	}
 
-	private Node find_root_with_min_key() {
-		Node min = null;
-		for (int i = 0; i < roots.length; i++) {
-			for (int j = 0; j < roots[i].size(); j++) {
-				if (min == null) {
-					min = roots[i].get(j);
-				} else {
-					if (roots[i].get(j).key.compareTo(min.key) < 0) {
-						min = roots[i].get(j);
-					}
-				}
+	/**
+	 * Remove all entries whose value satisfies the predicate, and return how
+	 * many were removed. This makes one pass over the forest to collect the
+	 * surviving leaves, then rebuilds the trees from them with a single
+	 * mergeTrees. The locators of the surviving entries remain valid.
+	 */
+	public int purge(Predicate<Value> p) {
+		ArrayList<Node> leaves = new ArrayList<Node>(nodeCt[0]);
+		for (int lev = 0; lev < nLevels; lev++) {
+			for (Node u = rootHead[lev]; u != null; u = u.next)
+				collectLeaves(u, leaves);
+		}
+		int removed = 0;
+		clearRoots(); // keep the levels, which the survivors still need
+		for (Node u : leaves) {
+			if (p.test(u.value)) {
+				removed += 1;
+			} else {
+				nodeCt[0] += 1;
+				makeRoot(u);
 			}
 		}
-		return min;
+		mergeTrees();
+		shrinkLevels();
+		return removed;
+	}
+
+	/**
+	 * Empty the root lists and node counts, keeping the number of levels.
+	 */
+	private void clearRoots() {
+		for (int lev = 0; lev < rootHead.length; lev++) {
+			rootHead[lev] = rootTail[lev] = null;
+			rootCt[lev] = 0;
+			nodeCt[lev] = 0;
+		}
+		minRoot = null;
+		minValid = true;
+	}
+
+	private void collectLeaves(Node u, ArrayList<Node> leaves) {
+		if (u.level == 0) {
+			leaves.add(u);
+		} else {
+			collectLeaves(u.left, leaves);
+			if (u.right != null)
+				collectLeaves(u.right, leaves);
+		}
 	}
 
 	private void delete_left_path(Node u) {
 		while (u != null) {
 			cut(u);
-			roots[u.level].remove(u);
+			removeRoot(u); // only the first node of the path is a root
 			nodeCt[u.level] -= 1;
 			u = u.left;
 		}
@@ -337,39 +540,53 @@ public class QuakeHeap<Key extends Comparable<Key>, Value> {
 	private void quake() {
 		for (int lev = 0; lev < nLevels - 1; lev++) {
 			if (nodeCt[lev + 1] > ratio * nodeCt[lev]) {
-				clear_all_above_level(lev);
+				lastQuakeSize = clear_all_above_level(lev);
 			}
 		}
 	}
 
-	private void traverse(Node u, int lev) {
-
-		if (u != null) {
-			traverse(u.left, lev);
-			if (u.level == lev) {
-				makeRoot(u);
-			}
-			if (u.right != null)
-				traverse(u.right, lev);
-		}
-	}
-
-	private void clear_all_above_level(int lev) {
+	/**
+	 * Remove every node above level lev, making the nodes at level lev roots
+	 * (from left to right within each tree). The trees are dismantled with an
+	 * explicit stack, and nodes at level lev are not descended into, so the
+	 * time is proportional to the number of nodes removed, which is returned.
+	 */
+	private int clear_all_above_level(int lev) {
+		int removed = 0;
 		for (int i = lev + 1; i <= nLevels - 1; i++) {
-			for (int j = 0; j < roots[i].size(); j++) {
-				Node u = roots[i].get(j);
-				roots[i].remove(u);
-				traverse(u, lev);
+			while (rootHead[i] != null) {
+				Node u = rootHead[i];
+				removeRoot(u);
+				stack.add(u);
+				while (!stack.isEmpty()) {
+					Node v = stack.remove(stack.size() - 1);
+					if (v.level == lev) {
+						makeRoot(v);
+					} else {
+						if (v.right != null)
+							stack.add(v.right);
+						stack.add(v.left); // visit the left subtree first
+						removed += 1;
+					}
+				}
 			}
 			nodeCt[i] = 0;
-
 		}
+		return removed;
 	}
 
 	public int size() {
 		return nodeCt[0];
 	}
 
+	/**
+	 * Number of nodes removed by the most recent quake (0 if there has been
+	 * none).
+	 */
+	public int getLastQuakeSize() {
+		return lastQuakeSize;
+	}
+
 	public void setQuakeRatio(double newRatio) throws Exception {
 		if (newRatio < 0.5 || newRatio > 1) {
 			throw new Exception("Quake ratio is outside valid bounds");
@@ -377,25 +594,27 @@ public class QuakeHeap<Key extends Comparable<Key>, Value> {
 		ratio = newRatio;
 	}
 
+	/**
+	 * Choose whether mergeTrees sorts each level's roots by key before pairing
+	 * them (the default). Without sorting, the trees that are built depend on
+	 * the order of past operations, not only on the keys, but each merge takes
+	 * time linear in the number of roots.
+	 */
+	public void setDeterministic(boolean deterministic) {
+		this.deterministic = deterministic;
+	}
+
+	/**
+	 * Set the number of levels. For a heap that scales its levels with its
+	 * size, this only sets the cap, reducing the current levels if above it.
+	 */
 	public void setNLevels(int nl) throws Exception {
 		if (nl < 1) {
 			throw new Exception("Attempt to set an invalid number of levels");
 		}
-		if (nl >= nLevels) {
-			nLevels = nl;
-		} else {
-			for (int i = nLevels - 1; i >= nl; i--) {
-				while (!roots[i].isEmpty()) {
-					Node curr = roots[i].get(0);
-					makeRoot(curr.left);
-					if (curr.right != null) {
-						makeRoot(curr.right);
-					}
-					roots[i].remove(curr);
-					nodeCt[i] -= 1;
-				}
-			}
-			nLevels = nl;
+		maxLevels = nl;
+		if (!autoLevels || nLevels > nl) {
+			resizeLevels(nl);
 		}
 	}
 }
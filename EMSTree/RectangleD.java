@@ -0,0 +1,139 @@
+package cmsc420_s22;
+
+/**
+ * An axis-parallel box in d-dimensional space (see Rectangle2D).
+ */
+
+public class RectangleD {
+	PointD low; // corner with the smallest coordinates
+	PointD high; // corner with the largest coordinates
+
+	/**
+	 * Construct an "empty" box of dimension dim. This box can serve as the
+	 * starting point to a process of expansion by adding points.
+	 */
+	public RectangleD(int dim) {
+		low = new PointD(new double[dim]);
+		high = new PointD(new double[dim]);
+		for (int i = 0; i < dim; i++) {
+			low.set(i, Double.POSITIVE_INFINITY);
+			high.set(i, Double.NEGATIVE_INFINITY);
+		}
+	}
+
+	/**
+	 * Construct from any two extreme corner points.
+	 */
+	public RectangleD(PointD c1, PointD c2) {
+		this(c1.getDimension());
+		expand(c1);
+		expand(c2);
+	}
+
+	/**
+	 * Copy constructor
+	 */
+	public RectangleD(RectangleD r) {
+		low = new PointD(r.low);
+		high = new PointD(r.high);
+	}
+
+	public String toString() {
+		return "[" + low + "," + high + "]";
+	}
+
+	/**
+	 * Getters
+	 */
+
+	public int getDimension() {
+		return low.getDimension();
+	}
+
+	public PointD getLow() {
+		return low;
+	}
+
+	public PointD getHigh() {
+		return high;
+	}
+
+	/**
+	 * Get width along dimension i.
+	 */
+	public double getWidth(int i) {
+		return high.get(i) - low.get(i);
+	}
+
+	/**
+	 * Check whether we contain a given point.
+	 */
+	public boolean contains(PointD q) {
+		if (q.getDimension() != getDimension())
+			return false;
+		for (int i = 0; i < getDimension(); i++) {
+			if (q.get(i) < low.get(i) || q.get(i) > high.get(i))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Compute the squared Euclidean distance to a point. Returns zero if the point
+	 * is contained within this box.
+	 */
+	public double distanceSq(PointD pt) {
+		double sum = 0; // sum of squared coordinate distances
+		for (int i = 0; i < getDimension(); i++) {
+			double diff = offset(i, pt.get(i));
+			sum += diff * diff;
+		}
+		return sum;
+	}
+
+	/**
+	 * Signed offset of coordinate c from the box along dimension i: negative
+	 * below it, positive above it, zero inside.
+	 */
+	public double offset(int i, double c) {
+		if (c < low.get(i)) {
+			return c - low.get(i);
+		} else if (c > high.get(i)) {
+			return c - high.get(i);
+		}
+		return 0;
+	}
+
+	/**
+	 * Compute the left part of a box that is split by a hyperplane orthogonal to
+	 * the cutting dimension at the given cutting value.
+	 */
+	public RectangleD leftPart(int cutDim, double cutVal) {
+		RectangleD result = new RectangleD(this);
+		result.high.set(cutDim, cutVal);
+		return result;
+	}
+
+	/**
+	 * Compute the right part of a box that is split by a hyperplane orthogonal to
+	 * the cutting dimension at the given cutting value.
+	 */
+	public RectangleD rightPart(int cutDim, double cutVal) {
+		RectangleD result = new RectangleD(this);
+		result.low.set(cutDim, cutVal);
+		return result;
+	}
+
+	/**
+	 * Expand the box to contain the given point.
+	 */
+	public void expand(PointD pt) {
+		for (int i = 0; i < getDimension(); i++) {
+			double coord = pt.get(i);
+			if (coord < low.get(i))
+				low.set(i, coord);
+			if (coord > high.get(i))
+				high.set(i, coord);
+		}
+	}
+}
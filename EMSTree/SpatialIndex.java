@@ -0,0 +1,24 @@
+package cmsc420_s22;
+
+import java.util.List;
+
+/**
+ * A dynamic set of labeled points supporting nearest-neighbor queries. This is
+ * the interface EMSTree uses to hold the points not yet in the tree, so that
+ * the structure can be chosen per dataset.
+ */
+public interface SpatialIndex<LPoint extends LabeledPoint2D> {
+	public int size(); // number of points
+
+	public LPoint find(Point2D pt); // find a point (null if absent)
+
+	public void insert(LPoint pt) throws Exception; // insert a new point
+
+	public void delete(Point2D pt) throws Exception; // delete an existing point
+
+	public void bulkLoad(List<LPoint> pts) throws Exception; // replace the contents
+
+	public LPoint nearestNeighbor(Point2D q); // closest point (null if empty)
+
+	public void clear(); // remove all points
+}
@@ -0,0 +1,68 @@
+package cmsc420_s22;
+
+/**
+ * A union-find (disjoint set) structure over the integers 0..n-1, with union
+ * by rank and path compression. Used by the EMST engines that merge
+ * components (Boruvka and Kruskal).
+ */
+
+public class UnionFind {
+
+	private int[] parent; // parent links (roots point to themselves)
+	private int[] rank; // upper bound on tree height
+	private int nSets; // number of disjoint sets
+
+	/**
+	 * Creates n singleton sets.
+	 */
+	public UnionFind(int n) {
+		parent = new int[n];
+		rank = new int[n];
+		for (int i = 0; i < n; i++)
+			parent[i] = i;
+		nSets = n;
+	}
+
+	/**
+	 * Representative of the set containing i.
+	 */
+	public int find(int i) {
+		int r = i;
+		while (parent[r] != r) // find the root
+			r = parent[r];
+		while (parent[i] != r) { // compress the path
+			int next = parent[i];
+			parent[i] = r;
+			i = next;
+		}
+		return r;
+	}
+
+	/**
+	 * Merge the sets containing i and j. Returns false if they were already the
+	 * same set.
+	 */
+	public boolean union(int i, int j) {
+		int ri = find(i);
+		int rj = find(j);
+		if (ri == rj)
+			return false;
+		if (rank[ri] < rank[rj]) {
+			parent[ri] = rj;
+		} else if (rank[ri] > rank[rj]) {
+			parent[rj] = ri;
+		} else {
+			parent[rj] = ri;
+			rank[ri] += 1;
+		}
+		nSets -= 1;
+		return true;
+	}
+
+	/**
+	 * Number of disjoint sets.
+	 */
+	public int size() {
+		return nSets;
+	}
+}